@@ -0,0 +1,48 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import pl.edu.agh.zurawskipiotr.cinemachain.persistence.BookingJournal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// przepustowość potwierdzonych (utrwalonych fsync) zapisów; maxBatchRecords=1 to fsync na każdy rekord
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(16)
+@Fork(1)
+public class BookingJournalBenchmark {
+
+    private static final List<String> SEAT_CODES = List.of("A1", "A2");
+
+    @Param({"1", "1024"})
+    public int maxBatchRecords;
+
+    private Path file;
+    private BookingJournal journal;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("booking-journal", ".log");
+        journal = BookingJournal.open(file, maxBatchRecords);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        journal.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long appendReservedDurably() {
+        long sequence = journal.appendReserved("screening", "C:customer", System.currentTimeMillis(), SEAT_CODES);
+        journal.awaitDurable(sequence);
+        return sequence;
+    }
+}
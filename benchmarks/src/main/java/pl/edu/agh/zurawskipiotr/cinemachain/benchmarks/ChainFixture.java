@@ -0,0 +1,108 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.benchmarks;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.catalog.Genre;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.catalog.Movie;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.chain.CinemaChain;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.customer.Customer;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.screening.Screening;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.Cinema;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.Hall;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.Seat;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.SeatCategory;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Wspólne parametry i budowa sieci kin dla wszystkich benchmarków
+@State(Scope.Thread)
+public abstract class ChainFixture {
+
+    static final int SEATS_PER_ROW = 20;
+    static final int CINEMAS = 4;
+
+    @Param({"100", "400"})
+    public int hallSize;
+
+    @Param({"10", "200"})
+    public int screeningCount;
+
+    @Param({"100", "10000"})
+    public int customerCount;
+
+    protected CinemaChain chain;
+    protected List<Cinema> cinemas;
+    protected List<Screening> screenings;
+    protected List<Customer> customers;
+    protected List<Movie> movies;
+
+    private int serial;
+
+    protected void buildChain() {
+        chain = new CinemaChain("Benchmark");
+        cinemas = new ArrayList<>();
+        screenings = new ArrayList<>();
+        customers = new ArrayList<>();
+        movies = List.of(
+                new Movie("Avatar: Istota Wody", 162, List.of(Genre.SCI_FI), 12),
+                new Movie("Diuna: Część II", 166, List.of(Genre.SCI_FI), 12),
+                new Movie("Życzenie", 95, List.of(Genre.ANIMATION, Genre.FAMILY), 0)
+        );
+        for (Movie movie : movies) {
+            chain.addMovie(movie);
+        }
+
+        for (int c = 0; c < CINEMAS; c++) {
+            Cinema cinema = new Cinema("Kino " + c, "ul. Testowa " + c);
+            cinema.addHall(newHall("Sala 1"));
+            chain.addCinema(cinema);
+            cinemas.add(cinema);
+        }
+
+        for (int i = 0; i < screeningCount; i++) {
+            screenings.add(addScreening(cinemas.get(i % CINEMAS), i));
+        }
+
+        for (int i = 0; i < customerCount; i++) {
+            Customer customer = newCustomer();
+            chain.registerCustomer(customer);
+            customers.add(customer);
+        }
+    }
+
+    protected Hall newHall(String name) {
+        Hall hall = new Hall(name);
+        for (int i = 0; i < hallSize; i++) {
+            String row = String.valueOf((char) ('A' + i / SEATS_PER_ROW));
+            SeatCategory category = (i / SEATS_PER_ROW == 0) ? SeatCategory.VIP : SeatCategory.STANDARD;
+            hall.addSeat(new Seat(row, i % SEATS_PER_ROW + 1, category));
+        }
+        return hall;
+    }
+
+    protected Screening addScreening(Cinema cinema, int i) {
+        LocalDateTime start = LocalDate.now().atTime(10, 0).plusDays(i % 7).plusMinutes(15L * (i / 7 % 48));
+        Screening screening = new Screening(
+                movies.get(i % movies.size()),
+                cinema.getRooms().get(0),
+                i % 5 == 0,
+                i % 3 == 0,
+                start
+        );
+        cinema.addScreening(screening);
+        return screening;
+    }
+
+    protected Customer newCustomer() {
+        int n = serial++;
+        return new Customer("Jan" + n, "Kowalski" + n, "jan.kowalski" + n + "@mail.com");
+    }
+
+    protected static String codeOf(int seat) {
+        return String.valueOf((char) ('A' + seat / SEATS_PER_ROW)) + (seat % SEATS_PER_ROW + 1);
+    }
+}
@@ -0,0 +1,56 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.screening.Screening;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.Cinema;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.ProgrammeDay;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CinemaBenchmark extends ChainFixture {
+
+    private Cinema cinema;
+    private LocalDateTime[] windowStarts;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        buildChain();
+        cinema = cinemas.get(0);
+
+        LocalDate today = LocalDate.now();
+        windowStarts = new LocalDateTime[7];
+        for (int d = 0; d < windowStarts.length; d++) {
+            windowStarts[d] = today.plusDays(d).atStartOfDay();
+        }
+    }
+
+    @Benchmark
+    public List<Screening> getProgrammeBetween() {
+        LocalDateTime from = windowStarts[cursor++ % windowStarts.length];
+        return cinema.getProgrammeBetween(from, from.plusDays(1));
+    }
+
+    // dni z pamięci podręcznej repertuaru (po pierwszym wywołaniu tylko odczyty)
+    @Benchmark
+    public List<ProgrammeDay> getProgrammeDaysForNextWeek() {
+        return cinema.getProgrammeDaysForNextWeek();
+    }
+
+    // dodanie seansu unieważnia jeden dzień, który jest budowany od nowa
+    @Benchmark
+    public ProgrammeDay addScreeningThenProgrammeDay() {
+        Screening screening = addScreening(cinema, cursor++);
+        ProgrammeDay day = cinema.getProgrammeDay(screening.getStartTime().toLocalDate());
+        cinema.removeScreening(screening);
+        return day;
+    }
+}
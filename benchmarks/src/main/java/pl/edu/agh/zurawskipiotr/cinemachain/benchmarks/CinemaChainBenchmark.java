@@ -0,0 +1,85 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.customer.Customer;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.sales.TicketOrder;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.sales.TicketPurchase;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.screening.Screening;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CinemaChainBenchmark extends ChainFixture {
+
+    // zamówienie szkolne: 200 biletów na 4 seansach w różnych kinach
+    private static final int BATCH_SCREENINGS = 4;
+    private static final int BATCH_SEATS_PER_SCREENING = 50;
+
+    private Customer candidate;
+    private List<TicketOrder> batchOrders;
+    private String[] batchSeats;
+    private List<TicketPurchase> purchases = List.of();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        buildChain();
+    }
+
+    @Setup(Level.Invocation)
+    public void prepareCandidate() {
+        candidate = newCustomer();
+
+        batchSeats = new String[Math.min(hallSize, BATCH_SEATS_PER_SCREENING)];
+        for (int i = 0; i < batchSeats.length; i++) {
+            batchSeats[i] = codeOf(i);
+        }
+        batchOrders = new ArrayList<>(BATCH_SCREENINGS);
+        for (int i = 0; i < BATCH_SCREENINGS; i++) {
+            Screening screening = addScreening(cinemas.get(i % CINEMAS), i);
+            batchOrders.add(TicketOrder.of(screening, batchSeats));
+        }
+    }
+
+    // sprzątanie po zakupie, żeby sieć nie rosła między wywołaniami (inaczej mierzymy głównie GC)
+    @TearDown(Level.Invocation)
+    public void releaseBatch() {
+        for (TicketPurchase purchase : purchases) {
+            chain.removeTicket(purchase.ticket());
+        }
+        for (TicketOrder order : batchOrders) {
+            order.screening().getCinema().removeScreening(order.screening());
+        }
+        purchases = List.of();
+    }
+
+    @Benchmark
+    public Customer registerCustomer() {
+        chain.registerCustomer(candidate);
+        return candidate;
+    }
+
+    @Benchmark
+    public List<TicketPurchase> buyTicketsBatch() {
+        purchases = chain.buyTicketsBatch(candidate, batchOrders);
+        return purchases;
+    }
+
+    // ten sam koszyk kupowany pojedynczo, dla porównania z partią
+    @Benchmark
+    public List<TicketPurchase> buyTicketsOneByOne() {
+        List<TicketPurchase> bought = new ArrayList<>();
+        for (TicketOrder order : batchOrders) {
+            for (String seat : order.seatCodes()) {
+                bought.addAll(chain.buyTickets(order.screening(), candidate, seat));
+            }
+        }
+        purchases = bought;
+        return bought;
+    }
+}
@@ -0,0 +1,60 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.customer.Customer;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.sales.Ticket;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.screening.Screening;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// klient z programu lojalnościowego z tysiącami biletów: usunięcie biletu, bilety na seans i strona nadchodzących
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CustomerTicketsBenchmark extends ChainFixture {
+
+    private static final int TICKETS = 5000;
+    private static final int PAGE = 20;
+
+    private Customer loyal;
+    private Ticket[] tickets;
+    private LocalDateTime upcomingFrom;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        buildChain();
+        loyal = newCustomer();
+        tickets = new Ticket[TICKETS];
+        for (int i = 0; i < TICKETS; i++) {
+            Screening screening = screenings.get(i % screenings.size());
+            tickets[i] = new Ticket(screening, screening.getHall().getSeats().get(i / screenings.size() % hallSize), loyal);
+            loyal.addOwnTicket(tickets[i]);
+        }
+        upcomingFrom = LocalDate.now().plusDays(3).atStartOfDay();
+    }
+
+    // bilet ze środka historii usuwany i dodawany z powrotem
+    @Benchmark
+    public Ticket removeAndAddOwnTicket() {
+        Ticket ticket = tickets[cursor++ % TICKETS];
+        loyal.removeOwnTicket(ticket);
+        loyal.addOwnTicket(ticket);
+        return ticket;
+    }
+
+    @Benchmark
+    public List<Ticket> getTicketsForScreening() {
+        return loyal.getTicketsFor(screenings.get(cursor++ % screenings.size()));
+    }
+
+    @Benchmark
+    public List<Ticket> getUpcomingTicketsPage() {
+        return loyal.getUpcomingTickets(upcomingFrom, 0, PAGE);
+    }
+}
@@ -0,0 +1,44 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.screening.Screening;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.Seat;
+import pl.edu.agh.zurawskipiotr.cinemachain.pricing.DefaultPricingPolicy;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PricingBenchmark extends ChainFixture {
+
+    private DefaultPricingPolicy policy;
+    private Seat[] seats;
+    private Screening[] screeningsArray;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        buildChain();
+        policy = DefaultPricingPolicy.defaultPolicy();
+        seats = screenings.get(0).getHall().getSeats().toArray(Seat[]::new);
+        screeningsArray = screenings.toArray(Screening[]::new);
+    }
+
+    @Benchmark
+    public BigDecimal calculatePrice() {
+        int i = cursor++;
+        Screening screening = screeningsArray[i % screeningsArray.length];
+        return policy.calculatePrice(seats[i % seats.length], screening.isVip(), screening.isThreeD());
+    }
+
+    @Benchmark
+    public long calculatePriceMinor() {
+        int i = cursor++;
+        Screening screening = screeningsArray[i % screeningsArray.length];
+        return policy.calculatePriceMinor(seats[i % seats.length], screening.isVip(), screening.isThreeD());
+    }
+}
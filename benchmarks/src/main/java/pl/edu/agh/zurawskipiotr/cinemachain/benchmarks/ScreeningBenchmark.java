@@ -0,0 +1,79 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.customer.Customer;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.sales.TicketPurchase;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.screening.Screening;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScreeningBenchmark extends ChainFixture {
+
+    private List<Customer> buyers;
+    private Screening screening;
+    private String[] seats;
+    private String token;
+
+    private int screeningCursor;
+    private int seatCursor;
+    private int customerCursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        buildChain();
+    }
+
+    // świeży zestaw kupujących na każdą iterację, żeby listy biletów nie rosły przez cały pomiar
+    @Setup(Level.Iteration)
+    public void resetBuyers() {
+        buyers = new ArrayList<>(customerCount);
+        for (int i = 0; i < customerCount; i++) {
+            buyers.add(newCustomer());
+        }
+    }
+
+    // kolejne wolne miejsca; gdy wszystkie seanse są wyprzedane, seanse są tworzone od nowa
+    private void nextSeats() {
+        if (seatCursor + 2 > hallSize) {
+            seatCursor = 0;
+            screeningCursor++;
+            if (screeningCursor == screenings.size()) {
+                screeningCursor = 0;
+                for (int i = 0; i < screenings.size(); i++) {
+                    Screening old = screenings.get(i);
+                    old.getCinema().removeScreening(old);
+                    screenings.set(i, addScreening(old.getCinema(), i));
+                }
+            }
+        }
+        screening = screenings.get(screeningCursor);
+        seats = new String[]{codeOf(seatCursor), codeOf(seatCursor + 1)};
+        seatCursor += 2;
+    }
+
+    @Setup(Level.Invocation)
+    public void prepareInvocation(BenchmarkParams params) {
+        nextSeats();
+        if (params.getBenchmark().endsWith("buyTicketsAsGuestWithToken")) {
+            token = screening.reservePlaces(seats);
+        }
+    }
+
+    @Benchmark
+    public List<TicketPurchase> buyTicketsForCustomer() {
+        return screening.buyTicketsForCustomer(buyers.get(customerCursor++ % buyers.size()), seats);
+    }
+
+    @Benchmark
+    public List<TicketPurchase> buyTicketsAsGuestWithToken() {
+        return screening.buyTicketsAsGuestWithToken(token, seats);
+    }
+}
@@ -0,0 +1,63 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.screening.Screening;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.screening.SeatStatus;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// renderowanie mapy miejsc seansu z częścią miejsc sprzedanych i zarezerwowanych:
+// szablon sali do bufora/StringBuildera, kodowanie 2-bitowe i (dla porównania) mapa kod -> stan
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SeatMapBenchmark extends ChainFixture {
+
+    private Screening screening;
+    private ByteBuffer buffer;
+    private StringBuilder text;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        buildChain();
+        screening = screenings.get(0);
+        for (int i = 0; i + 1 < hallSize; i += 3) {
+            screening.buyTicketsAsGuest(codeOf(i));
+            screening.reservePlaces(codeOf(i + 1));
+        }
+        buffer = ByteBuffer.allocate(hallSize * 8 + 1024);
+        text = new StringBuilder(hallSize * 8 + 1024);
+    }
+
+    @Benchmark
+    public ByteBuffer renderToByteBuffer() {
+        buffer.clear();
+        screening.renderSeatMap(buffer);
+        return buffer;
+    }
+
+    @Benchmark
+    public StringBuilder renderToStringBuilder() {
+        text.setLength(0);
+        screening.renderSeatMap(text);
+        return text;
+    }
+
+    @Benchmark
+    public byte[] encodeSeatStatuses() {
+        return screening.encodeSeatStatuses();
+    }
+
+    @Benchmark
+    public int seatStatusMap() {
+        int sold = 0;
+        for (Map.Entry<String, SeatStatus> entry : screening.seatStatus().entrySet()) {
+            if (entry.getValue() == SeatStatus.SOLD) sold++;
+        }
+        return sold;
+    }
+}
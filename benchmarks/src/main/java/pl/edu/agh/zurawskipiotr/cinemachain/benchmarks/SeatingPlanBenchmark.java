@@ -0,0 +1,139 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.screening.ReservationExpiryScheduler;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.screening.SeatingPlan;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.SeatIndex;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SeatingPlanBenchmark extends ChainFixture {
+
+    private static final int SEATS_PER_CALL = 2;
+    private static final Duration TTL = Duration.ofSeconds(2);
+    private static final int OCCUPANCY_PERCENT = 90;
+
+    private SeatIndex seatIndex;
+    private ReservationExpiryScheduler scheduler;
+    private SeatingPlan[] plans;
+    private String[][] seatPairs;
+    private String[] ownerKeys;
+
+    private int planCursor;
+    private int pairCursor;
+    private int ownerCursor;
+    private int authorizeCursor;
+
+    private SeatingPlan authorizePlan;
+    private String authorizeOwner;
+    private String[][] authorizePairs;
+
+    private SeatingPlan crowdedPlan;
+    private SeatingPlan largeHoldPlan;
+    private int largeHoldCursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        buildChain();
+        seatIndex = screenings.get(0).getHall().getSeatIndex();
+        scheduler = new ReservationExpiryScheduler();
+
+        seatPairs = new String[hallSize / SEATS_PER_CALL][];
+        for (int i = 0; i < seatPairs.length; i++) {
+            seatPairs[i] = new String[]{codeOf(2 * i), codeOf(2 * i + 1)};
+        }
+        ownerKeys = new String[customerCount];
+        for (int i = 0; i < customerCount; i++) {
+            ownerKeys[i] = "C:" + customers.get(i).getId();
+        }
+        plans = new SeatingPlan[screeningCount];
+        for (int i = 0; i < screeningCount; i++) {
+            plans[i] = newPlan();
+        }
+
+        authorizePlan = newPlan();
+        authorizeOwner = ownerKeys[0];
+        authorizePairs = new String[seatPairs.length / 2][];
+        for (int i = 0; i < authorizePairs.length; i++) {
+            authorizePairs[i] = seatPairs[i];
+            authorizePlan.reserve(authorizeOwner, authorizePairs[i]);
+        }
+
+        // sala zajęta w ~90% losowo, więc wolne pary są rozrzucone po rzędach
+        crowdedPlan = new SeatingPlan(seatIndex.codeIndex(), seatIndex.rowLayout(), TTL, () -> scheduler);
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < hallSize; i++) {
+            if (random.nextInt(100) < OCCUPANCY_PERCENT) crowdedPlan.markSold(codeOf(i));
+        }
+
+        // bez TTL, żeby trzymana połowa sali nie wygasła w trakcie pomiaru
+        largeHoldPlan = new SeatingPlan(seatIndex.codeIndex(), Duration.ZERO, () -> scheduler);
+        for (String[] pair : authorizePairs) {
+            largeHoldPlan.reserve(authorizeOwner, pair);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Benchmark
+    public SeatingPlan reserve() {
+        SeatingPlan plan = plans[planCursor];
+        plan.reserve(ownerKeys[ownerCursor], seatPairs[pairCursor]);
+
+        ownerCursor = (ownerCursor + 1) % ownerKeys.length;
+        planCursor++;
+        if (planCursor == plans.length) {
+            planCursor = 0;
+            pairCursor++;
+            if (pairCursor == seatPairs.length) {
+                // wszystkie seanse pełne: zaczynamy od nowych planów (koszt rozłożony na hallSize/2 * screeningCount wywołań)
+                pairCursor = 0;
+                for (int i = 0; i < plans.length; i++) {
+                    plans[i] = newPlan();
+                }
+            }
+        }
+        return plan;
+    }
+
+    @Benchmark
+    public String[] authorizePurchase() {
+        String[] pair = authorizePairs[authorizeCursor++ % authorizePairs.length];
+        authorizePlan.authorizePurchase(authorizeOwner, null, false, pair);
+        return pair;
+    }
+
+    // najlepsza para w zatłoczonej sali; zwolnienie utrzymuje stałe zajęcie sali między wywołaniami
+    @Benchmark
+    public List<String> reserveBestAvailable() {
+        List<String> seats = crowdedPlan.reserveBestAvailable(authorizeOwner, SEATS_PER_CALL, -1);
+        if (!seats.isEmpty()) {
+            crowdedPlan.restoreRelease(authorizeOwner, seats.toArray(String[]::new));
+        }
+        return seats;
+    }
+
+    // właściciel trzyma już połowę sali; dołożenie i zwolnienie pary zmienia tylko jego zbiór miejsc
+    @Benchmark
+    public String[] reserveReleaseWithLargeHold() {
+        String[] pair = seatPairs[authorizePairs.length + largeHoldCursor++ % (seatPairs.length - authorizePairs.length)];
+        largeHoldPlan.reserve(authorizeOwner, pair);
+        largeHoldPlan.restoreRelease(authorizeOwner, pair);
+        return pair;
+    }
+
+    private SeatingPlan newPlan() {
+        return new SeatingPlan(seatIndex.codeIndex(), TTL, () -> scheduler);
+    }
+}
@@ -0,0 +1,118 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.booking.SeatBlockReservation;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.catalog.Genre;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.catalog.Movie;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.chain.CinemaChain;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.screening.Screening;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.Cinema;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.Hall;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.Seat;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.SeatCategory;
+import pl.edu.agh.zurawskipiotr.cinemachain.runtime.ShardedBookingRuntime;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// rezerwacje "najlepszych miejsc" z wielu wątków rozłożonych po kinach: bezpośrednio (blokady planu)
+// i przez ShardedBookingRuntime (komunikat do pętli kina); pełny seans zastępowany jest nowym
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class ShardedRuntimeBenchmark {
+
+    private static final int ROWS = 20;
+    private static final int SEATS_PER_ROW = 20;
+    private static final int PARTY_SIZE = 2;
+
+    @Param({"1", "4"})
+    public int cinemaCount;
+
+    private Movie movie;
+    private Cinema[] cinemas;
+    private AtomicReferenceArray<Screening> currentScreenings;
+    private ShardedBookingRuntime runtime;
+    private final AtomicInteger nextThread = new AtomicInteger();
+    private final AtomicInteger screeningSerial = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        CinemaChain chain = new CinemaChain("Benchmark");
+        movie = new Movie("Diuna: Część II", 166, List.of(Genre.SCI_FI), 12);
+        chain.addMovie(movie);
+
+        cinemas = new Cinema[cinemaCount];
+        currentScreenings = new AtomicReferenceArray<>(cinemaCount);
+        for (int c = 0; c < cinemaCount; c++) {
+            cinemas[c] = new Cinema("Kino " + c, "ul. Testowa " + c);
+            cinemas[c].addHall(newHall());
+            chain.addCinema(cinemas[c]);
+            currentScreenings.set(c, newScreening(cinemas[c]));
+        }
+        runtime = new ShardedBookingRuntime(chain);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        runtime.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Shopper {
+        private int shard;
+
+        @Setup(Level.Trial)
+        public void setUp(ShardedRuntimeBenchmark benchmark) {
+            shard = benchmark.nextThread.getAndIncrement() % benchmark.cinemaCount;
+        }
+    }
+
+    // wątki tego samego kina rezerwują na wspólnym seansie i rywalizują o blokady jego planu
+    @Benchmark
+    public SeatBlockReservation reserveDirect(Shopper shopper) {
+        return reserveOnCurrent(shopper.shard);
+    }
+
+    @Benchmark
+    public SeatBlockReservation reserveSharded(Shopper shopper) {
+        int shard = shopper.shard;
+        return runtime.submit(cinemas[shard], () -> reserveOnCurrent(shard)).join();
+    }
+
+    private SeatBlockReservation reserveOnCurrent(int shard) {
+        Screening screening = currentScreenings.get(shard);
+        try {
+            return screening.reserveBestAvailable(PARTY_SIZE, null);
+        } catch (IllegalStateException full) {
+            currentScreenings.compareAndSet(shard, screening, newScreening(cinemas[shard]));
+            return null;
+        }
+    }
+
+    private Screening newScreening(Cinema cinema) {
+        int n = screeningSerial.getAndIncrement();
+        Screening screening = new Screening(movie, cinema.getRooms().get(0), false, false,
+                LocalDate.now().plusDays(1 + n / 48).atTime(0, 0).plusMinutes(30L * (n % 48)));
+        cinema.addScreening(screening);
+        return screening;
+    }
+
+    private static Hall newHall() {
+        Hall hall = new Hall("Sala 1");
+        for (int r = 0; r < ROWS; r++) {
+            String row = String.valueOf((char) ('A' + r));
+            for (int n = 1; n <= SEATS_PER_ROW; n++) {
+                hall.addSeat(new Seat(row, n, SeatCategory.STANDARD));
+            }
+        }
+        return hall;
+    }
+}
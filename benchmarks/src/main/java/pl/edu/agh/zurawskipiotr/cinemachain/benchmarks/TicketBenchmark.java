@@ -0,0 +1,47 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.sales.Ticket;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.screening.Screening;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.Seat;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TicketBenchmark extends ChainFixture {
+
+    private Screening screening;
+    private Seat seat;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        buildChain();
+        screening = screenings.get(0);
+        seat = screening.getHall().getSeats().get(0);
+    }
+
+    @Benchmark
+    public Ticket issueTicket() {
+        return new Ticket(screening, seat, null);
+    }
+
+    // sprzedaż równoległa: wszystkie wątki wydają bilety jednocześnie
+    @Benchmark
+    @Threads(4)
+    public Ticket issueTicketContended() {
+        return new Ticket(screening, seat, null);
+    }
+
+    @Benchmark
+    public Ticket registerAndLookupByCode() {
+        Ticket ticket = new Ticket(screening, seat, null);
+        chain.addTicket(ticket);
+        Ticket found = chain.findTicketByCode(ticket.getCode());
+        chain.removeTicket(ticket);
+        return found;
+    }
+}
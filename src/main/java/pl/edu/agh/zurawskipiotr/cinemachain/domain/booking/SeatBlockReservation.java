@@ -0,0 +1,12 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.domain.booking;
+
+import java.util.List;
+import java.util.Objects;
+
+// Wynik rezerwacji "najlepszych dostępnych" miejsc dla gościa: token do zakupu i przydzielone miejsca.
+public record SeatBlockReservation(String reservationToken, List<String> seatCodes) {
+    public SeatBlockReservation {
+        Objects.requireNonNull(reservationToken, "reservationToken");
+        seatCodes = List.copyOf(Objects.requireNonNull(seatCodes, "seatCodes"));
+    }
+}
@@ -0,0 +1,67 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.domain.catalog;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// Katalog filmów z indeksem po tytule niezależnym od wielkości liter:
+// mapa haszująca do wyszukiwania dokładnego i mapa posortowana do podpowiedzi po prefiksie.
+public final class MovieCatalogue {
+
+    private final Map<String, Movie> byFoldedTitle = new ConcurrentHashMap<>();
+    private final NavigableMap<String, Movie> byFoldedTitlePrefix = new ConcurrentSkipListMap<>();
+    private final Map<String, Movie> inInsertionOrder = new LinkedHashMap<>();
+
+    // toUpperCase + toLowerCase w Locale.ROOT: wynik nie zależy od locale JVM (np. tureckie "I")
+    public static String fold(String title) {
+        return title.toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+    }
+
+    public Movie findByTitle(String title) {
+        if (title == null) return null;
+        return byFoldedTitle.get(fold(title));
+    }
+
+    public List<Movie> findByTitlePrefix(String prefix, int limit) {
+        if (prefix == null || limit <= 0) return List.of();
+
+        String folded = fold(prefix);
+        List<Movie> result = new ArrayList<>(Math.min(limit, 16));
+        for (Map.Entry<String, Movie> e : byFoldedTitlePrefix.tailMap(folded, true).entrySet()) {
+            if (!e.getKey().startsWith(folded) || result.size() == limit) break;
+            result.add(e.getValue());
+        }
+        return result;
+    }
+
+    public synchronized boolean add(Movie movie) {
+        String key = fold(movie.title());
+        if (byFoldedTitle.putIfAbsent(key, movie) != null) return false;
+        byFoldedTitlePrefix.put(key, movie);
+        inInsertionOrder.put(key, movie);
+        return true;
+    }
+
+    public synchronized boolean remove(Movie movie) {
+        if (movie.title() == null) return false;
+
+        String key = fold(movie.title());
+        if (!byFoldedTitle.remove(key, movie)) return false;
+        byFoldedTitlePrefix.remove(key);
+        inInsertionOrder.remove(key);
+        return true;
+    }
+
+    public synchronized List<Movie> all() {
+        return List.copyOf(inInsertionOrder.values());
+    }
+
+    public int size() {
+        return byFoldedTitle.size();
+    }
+}
@@ -1,30 +1,57 @@
 package pl.edu.agh.zurawskipiotr.cinemachain.domain.chain;
 
 import pl.edu.agh.zurawskipiotr.cinemachain.domain.catalog.Movie;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.catalog.MovieCatalogue;
 import pl.edu.agh.zurawskipiotr.cinemachain.domain.customer.Customer;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.customer.CustomerEmailIndex;
 import pl.edu.agh.zurawskipiotr.cinemachain.domain.sales.Ticket;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.sales.TicketIds;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.sales.TicketOrder;
 import pl.edu.agh.zurawskipiotr.cinemachain.domain.sales.TicketPurchase;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.sales.TicketRegistry;
 import pl.edu.agh.zurawskipiotr.cinemachain.domain.screening.Screening;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.screening.SeatStateArena;
 import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.Cinema;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.ProgrammeDay;
+import pl.edu.agh.zurawskipiotr.cinemachain.persistence.BookingJournal;
 
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 public class CinemaChain {
     private final String id;
-    private final Map<String, Cinema> cinemas = new HashMap<>();
-    private final List<Movie> movies = new ArrayList<>();
-    private final Map<String, Customer> customers = new HashMap<>();
-    private final Map<String, Ticket> ticketsByCode = new HashMap<>();
+    private final Map<String, Cinema> cinemas = new ConcurrentHashMap<>();
+    // seanse wszystkich kin według id, utrzymywane przez Cinema.addScreening/removeScreening i setChain;
+    // odtwarzanie dziennika i każde żądanie HTTP szukają seansu bez przeglądania kin
+    private final Map<String, Screening> screeningsById = new ConcurrentHashMap<>();
+    private final MovieCatalogue movies = new MovieCatalogue();
+    private final Map<String, Customer> customers = new ConcurrentHashMap<>();
+    private final CustomerEmailIndex customersByEmail = new CustomerEmailIndex();
+    private final TicketRegistry tickets = new TicketRegistry();
+    private final Map<String, Ticket> ticketsByCode = new TicketsByCode();
+    private volatile BookingJournal journal;
+    private volatile SeatStateArena seatStateArena;
+    // ustawiane, gdy pierwszy plan wybrał magazyn stanu miejsc; od tej chwili backend jest ustalony dla całej sieci
+    private boolean seatStateBackendChosen;
 
     private String chainName;
 
     public CinemaChain(String chainName) {
-        this.id = UUID.randomUUID().toString();
+        this(UUID.randomUUID().toString(), chainName);
+    }
+
+    public CinemaChain(String id, String chainName) {
+        this.id = Objects.requireNonNull(id, "id");
         this.chainName = chainName;
     }
 
+    public String getId() {
+        return id;
+    }
+
     public String getChainName() {
         return chainName;
     }
@@ -37,64 +64,124 @@ public class CinemaChain {
         return Collections.unmodifiableMap(cinemas);
     }
 
+    public BookingJournal getJournal() {
+        return journal;
+    }
+
+    // null wyłącza zapis; dziennik podłącza się po odtworzeniu stanu, żeby replay nie był zapisywany ponownie
+    public void attachJournal(BookingJournal journal) {
+        this.journal = journal;
+    }
+
+    // backend stanu miejsc jest wspólny dla całej sieci: null = sterta, inaczej ta arena dla każdego seansu
+    public SeatStateArena getSeatStateArena() {
+        return seatStateArena;
+    }
+
+    // Trzeba wywołać przed pierwszą rezerwacją lub sprzedażą w sieci (także przed odtworzeniem dziennika), bo plan
+    // wybiera magazyn przy pierwszej zmianie miejsca i potem go nie zmienia. Budowa sieci i odczyt zrzutu bez
+    // rezerwacji niczego nie wybierają. Zamknięcie areny należy do wywołującego, po zatrzymaniu sprzedaży
+    public synchronized void attachSeatStateArena(SeatStateArena seatStateArena) {
+        if (seatStateBackendChosen && seatStateArena != this.seatStateArena) {
+            throw new IllegalStateException("Seat state backend already in use by this chain's screenings");
+        }
+        this.seatStateArena = seatStateArena;
+    }
+
+    // wywoływane przez seans przy pierwszej zmianie miejsca; ustala backend dla całej sieci
+    public synchronized SeatStateArena chooseSeatStateArena() {
+        seatStateBackendChosen = true;
+        return seatStateArena;
+    }
+
     public Map<String, Customer> getCustomers() {
         return Collections.unmodifiableMap(customers);
     }
 
     public void addCinema(Cinema cinema) {
         Objects.requireNonNull(cinema, "cinema");
-        if (cinemas.containsKey(cinema.getId())) {
+        if (cinemas.putIfAbsent(cinema.getId(), cinema) != null) {
             throw new IllegalStateException("pl.edu.agh.zurawskipiotr.cinemachain.model.Cinema with id already exists: " + cinema.getId());
         }
-        cinemas.put(cinema.getId(), cinema);
+        try {
+            cinema.setChain(this);
+        } catch (IllegalStateException e) {
+            cinemas.remove(cinema.getId(), cinema);
+            throw e;
+        }
     }
 
     public void removeCinema(Cinema cinema) {
         if (cinema == null) return;
-        cinemas.remove(cinema.getId());
+        if (!cinemas.remove(cinema.getId(), cinema)) return;
+        if (cinema.getChain() == this) cinema.setChain(null);
+        // seanse kina spoza sieci nie trzymają slotów areny
+        cinema.getScreenings().forEach(Screening::releaseSeatState);
     }
 
     public void registerCustomer(Customer customer) {
         Objects.requireNonNull(customer, "customer");
 
-        if (customers.containsKey(customer.getId())) {
+        if (customers.putIfAbsent(customer.getId(), customer) != null) {
             throw new IllegalStateException("pl.edu.agh.zurawskipiotr.cinemachain.model.Customer with id already exists: " + customer.getId());
         }
 
-        String email = customer.getEmail();
-        if (email != null && !email.isBlank()) {
-            String normalized = email.trim().toLowerCase(Locale.ROOT);
-            boolean emailTaken = customers.values().stream()
-                    .map(Customer::getEmail)
-                    .filter(Objects::nonNull)
-                    .map(e -> e.trim().toLowerCase(Locale.ROOT))
-                    .anyMatch(e -> e.equals(normalized));
-            if (emailTaken) {
-                throw new IllegalStateException("pl.edu.agh.zurawskipiotr.cinemachain.model.Customer with email already exists: " + email);
-            }
+        boolean added;
+        try {
+            added = customersByEmail.add(customer);
+        } catch (RuntimeException ex) {
+            customers.remove(customer.getId(), customer);
+            throw ex;
+        }
+        if (!added) {
+            customers.remove(customer.getId(), customer);
+            throw new IllegalStateException("pl.edu.agh.zurawskipiotr.cinemachain.model.Customer with email already exists: " + customer.getEmail());
         }
-
-        customers.put(customer.getId(), customer);
     }
 
     public void unregisterCustomer(Customer customer) {
         if (customer == null) return;
-        customers.remove(customer.getId());
+        if (customers.remove(customer.getId(), customer)) {
+            customersByEmail.remove(customer);
+        }
+    }
+
+    public Screening findScreeningById(String screeningId) {
+        if (screeningId == null) return null;
+        return screeningsById.get(screeningId);
+    }
+
+    // wywoływane tylko przez Cinema: id seansu jest unikalne w całej sieci (dziennik i API wskazują seans samym id)
+    public void indexScreening(Screening screening) {
+        Screening existing = screeningsById.putIfAbsent(screening.getId(), screening);
+        if (existing != null && existing != screening) {
+            throw new IllegalStateException("pl.edu.agh.zurawskipiotr.cinemachain.model.Screening with id already exists: " + screening.getId());
+        }
+    }
+
+    public void unindexScreening(Screening screening) {
+        screeningsById.remove(screening.getId(), screening);
+    }
+
+    public Customer findCustomerByEmail(String email) {
+        return customersByEmail.find(email);
     }
 
     public List<Movie> getMovies() {
-        return Collections.unmodifiableList(movies);
+        return movies.all();
     }
 
+    // widok rejestru tylko do odczytu; kluczem jest postać drukowana identyfikatora
     public Map<String, Ticket> getTicketsByCode() {
-        return Collections.unmodifiableMap(ticketsByCode);
+        return ticketsByCode;
     }
 
     public Movie findMovieByTitle(String title) {
-        return movies.stream()
-                .filter(m -> m.title().equalsIgnoreCase(title))
-                .findFirst()
-                .orElse(null);
+        return movies.findByTitle(title);
+    }
+
+    public List<Movie> findMoviesByTitlePrefix(String prefix, int limit) {
+        return movies.findByTitlePrefix(prefix, limit);
     }
 
     public void addMovie(Movie movie) {
@@ -103,11 +190,9 @@ public class CinemaChain {
         if (title == null || title.isBlank()) {
             throw new IllegalArgumentException("pl.edu.agh.zurawskipiotr.cinemachain.model.Movie title is required");
         }
-        boolean exists = movies.stream().anyMatch(m -> m.title().equalsIgnoreCase(title));
-        if (exists) {
+        if (!movies.add(movie)) {
             throw new IllegalStateException("pl.edu.agh.zurawskipiotr.cinemachain.model.Movie already exists in catalogue: " + title);
         }
-        movies.add(movie);
     }
 
     public void removeMovie(Movie movie) {
@@ -117,50 +202,112 @@ public class CinemaChain {
 
     public void addTicket(Ticket ticket) {
         Objects.requireNonNull(ticket, "ticket");
-        String code = ticket.getCode();
-        if (code == null || code.isBlank()) {
-            throw new IllegalArgumentException("pl.edu.agh.zurawskipiotr.cinemachain.model.Ticket code is required");
-        }
-        if (ticketsByCode.containsKey(code)) {
-            throw new IllegalStateException("pl.edu.agh.zurawskipiotr.cinemachain.model.Ticket code already registered: " + code);
+        if (tickets.putIfAbsent(ticket) != null) {
+            throw new IllegalStateException("pl.edu.agh.zurawskipiotr.cinemachain.model.Ticket code already registered: " + ticket.getCode());
         }
-        ticketsByCode.put(code, ticket);
     }
 
     public void removeTicket(Ticket ticket) {
         if (ticket == null) return;
-        ticketsByCode.remove(ticket.getCode());
+        tickets.remove(ticket);
     }
 
     public List<TicketPurchase> buyTickets(Screening screening, Customer customer, String... seatCodes) {
         Objects.requireNonNull(screening, "screening");
         Objects.requireNonNull(customer, "customer");
 
-        List<TicketPurchase> purchases = screening.buyTicketsForCustomer(customer, seatCodes);
-        registerPurchases(purchases);
-        return purchases;
+        return purchase(() -> screening.buyTicketsForCustomer(customer, seatCodes));
     }
 
     public List<TicketPurchase> buyTicketsAsGuest(Screening screening, String... seatCodes) {
         Objects.requireNonNull(screening, "screening");
 
-        List<TicketPurchase> purchases = screening.buyTicketsAsGuest(seatCodes);
-        registerPurchases(purchases);
-        return purchases;
+        return purchase(() -> screening.buyTicketsAsGuest(seatCodes));
     }
 
     public List<TicketPurchase> buyTicketsWithToken(Screening screening, String token, String... seatCodes) {
         Objects.requireNonNull(screening, "screening");
 
-        List<TicketPurchase> purchases = screening.buyTicketsAsGuestWithToken(token, seatCodes);
-        registerPurchases(purchases);
+        return purchase(() -> screening.buyTicketsAsGuestWithToken(token, seatCodes));
+    }
+
+    // zakup zbiorczy (grupy, maratony) na wielu seansach i w wielu kinach: wszystkie miejsca albo żadne
+    public List<TicketPurchase> buyTicketsBatch(Customer customer, List<TicketOrder> orders) {
+        Objects.requireNonNull(customer, "customer");
+
+        return purchase(() -> Screening.buyTicketsBatch(customer, orders));
+    }
+
+    public List<TicketPurchase> buyTicketsBatchAsGuest(List<TicketOrder> orders) {
+        return purchase(() -> Screening.buyTicketsBatch(null, orders));
+    }
+
+    // Bilety trafiają do rejestru sieci przed oczekiwaniem na zapis dziennika na dysku: miejsca są już wtedy
+    // sprzedane, więc błąd zapisu nie może zostawić sprzedanych biletów poza rejestrem
+    private List<TicketPurchase> purchase(Supplier<List<TicketPurchase>> sale) {
+        BookingJournal current = journal;
+        if (current == null || BookingJournal.isDeferred()) {
+            List<TicketPurchase> purchases = sale.get();
+            registerPurchases(purchases);
+            return purchases;
+        }
+
+        List<TicketPurchase> purchases;
+        BookingJournal.beginDeferred();
+        try {
+            purchases = sale.get();
+            registerPurchases(purchases);
+        } catch (RuntimeException ex) {
+            BookingJournal.endDeferred();
+            throw ex;
+        }
+        current.awaitDurable(BookingJournal.endDeferred());
         return purchases;
     }
 
     private void registerPurchases(List<TicketPurchase> purchases) {
+        List<Ticket> batch = new ArrayList<>(purchases.size());
         for (TicketPurchase tp : purchases) {
-            addTicket(tp.ticket());
+            batch.add(tp.ticket());
+        }
+        List<Ticket> rejected = tickets.putAllIfAbsent(batch);
+        if (!rejected.isEmpty()) {
+            throw new IllegalStateException("pl.edu.agh.zurawskipiotr.cinemachain.model.Ticket code already registered: " + rejected.get(0).getCode());
+        }
+    }
+
+    // scalanie k list (każde kino zwraca już posortowany zakres ze swojego indeksu)
+    public List<Screening> getScreeningsBetween(LocalDateTime fromInclusive, LocalDateTime toExclusive) {
+        Objects.requireNonNull(fromInclusive, "fromInclusive");
+        Objects.requireNonNull(toExclusive, "toExclusive");
+
+        List<List<Screening>> perCinema = new ArrayList<>();
+        int total = 0;
+        for (Cinema cinema : cinemas.values()) {
+            List<Screening> part = cinema.getProgrammeBetween(fromInclusive, toExclusive);
+            if (part.isEmpty()) continue;
+            perCinema.add(part);
+            total += part.size();
+        }
+        if (perCinema.size() == 1) return perCinema.get(0);
+
+        PriorityQueue<int[]> heads = new PriorityQueue<>(
+                Math.max(1, perCinema.size()),
+                Comparator.<int[], LocalDateTime>comparing(h -> perCinema.get(h[0]).get(h[1]).getStartTime())
+                        .thenComparingInt(h -> h[0])
+        );
+        for (int i = 0; i < perCinema.size(); i++) {
+            heads.add(new int[]{i, 0});
+        }
+
+        List<Screening> result = new ArrayList<>(total);
+        while (!heads.isEmpty()) {
+            int[] head = heads.poll();
+            List<Screening> part = perCinema.get(head[0]);
+            result.add(part.get(head[1]));
+            if (++head[1] < part.size()) heads.add(head);
         }
+        return result;
     }
 
     public void printProgramme() {
@@ -173,67 +320,102 @@ public class CinemaChain {
             return;
         }
 
-        boolean any = false;
+        // zimne kina budują repertuar równolegle, potem wszystko wypisujemy po kolei z pamięci podręcznej
+        List<Cinema> ordered = new ArrayList<>(cinemas.values());
+        List<List<ProgrammeDay>> weeks = ordered.parallelStream()
+                .map(Cinema::getProgrammeDaysForNextWeek)
+                .toList();
 
-        for (Cinema cinema : cinemas.values()) {
-            List<Screening> week = cinema.getProgrammeForNextWeek();
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < ordered.size(); i++) {
+            List<ProgrammeDay> week = weeks.get(i);
             if (week.isEmpty()) continue;
 
-            any = true;
-
-            System.out.println("##################################################");
-            System.out.println("Kino: " + cinema.getName() + " (" + cinema.getAddress() + ")");
-            System.out.println("##################################################");
-
-            printProgrammeBlock(week);
-            System.out.println();
+            Cinema cinema = ordered.get(i);
+            out.append("##################################################\n");
+            out.append("Kino: ").append(cinema.getName()).append(" (").append(cinema.getAddress()).append(")\n");
+            out.append("##################################################\n");
+            for (ProgrammeDay day : week) {
+                out.append(day.rendered());
+            }
+            out.append('\n');
         }
 
-        if (!any) {
+        if (out.isEmpty()) {
             System.out.println("Brak seansów w najbliższym tygodniu w całej sieci.");
+        } else {
+            System.out.print(out);
         }
     }
 
-    private void printProgrammeBlock(List<Screening> week) {
-        DateTimeFormatter timeFmt = DateTimeFormatter.ofPattern("HH:mm");
-
-        Map<LocalDate, List<Screening>> byDate = new LinkedHashMap<>();
-        for (Screening s : week) {
-            LocalDate d = s.getStartTime().toLocalDate();
-            byDate.computeIfAbsent(d, k -> new ArrayList<>()).add(s);
-        }
-
-        for (Map.Entry<LocalDate, List<Screening>> entry : byDate.entrySet()) {
-            System.out.println("=== " + entry.getKey() + " ===");
-            for (Screening s : entry.getValue()) {
-                System.out.println(
-                        s.getStartTime().format(timeFmt)
-                                + " | " + s.getMovie().title()
-                                + " | sala: " + s.getHall().getName()
-                                + buildTags(s)
-                );
-            }
-            System.out.println();
+    public Ticket findTicketByCode(String code) {
+        if (code == null || code.isBlank()) return null;
+        try {
+            return tickets.get(TicketIds.parse(code));
+        } catch (IllegalArgumentException ex) {
+            return null;
         }
     }
 
-    private String buildTags(Screening s) {
-        List<String> tags = new ArrayList<>();
-        if (s.isVip()) tags.add("VIP");
-        if (s.isThreeD()) tags.add("3D");
-        return tags.isEmpty() ? "" : " | [" + String.join(", ", tags) + "]";
-    }
-
-    public Ticket findTicketByCode(String code) {
-        if (code == null || code.isBlank()) return null;
-        return ticketsByCode.get(code);
+    public Ticket findTicketById(long ticketId) {
+        return tickets.get(ticketId);
     }
 
     public void printTicketRegistrySummary() {
-        System.out.println("Tickets registered in chain: " + ticketsByCode.size());
+        System.out.println("Tickets registered in chain: " + tickets.size());
     }
 
     public Ticket getTicketByCode(String code) {
         return findTicketByCode(code);
     }
+
+    // Widok rejestru biletów po kodach, jak dawna mapa kodów. get przyjmuje tylko kod w postaci kanonicznej
+    // (tej z keySet); literówki i małe litery rozpoznaje findTicketByCode. Iteracja idzie segmentami rejestru
+    // (TicketRegistry.iterator) i kody formatuje dopiero dla odwiedzanych biletów.
+    private final class TicketsByCode extends AbstractMap<String, Ticket> {
+
+        @Override
+        public Ticket get(Object code) {
+            if (!(code instanceof String text)) return null;
+            Ticket ticket = findTicketByCode(text);
+            return (ticket != null && ticket.getCode().equals(text)) ? ticket : null;
+        }
+
+        @Override
+        public boolean containsKey(Object code) {
+            return get(code) != null;
+        }
+
+        @Override
+        public int size() {
+            return tickets.size();
+        }
+
+        @Override
+        public Set<Entry<String, Ticket>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, Ticket>> iterator() {
+                    Iterator<Ticket> values = tickets.iterator();
+                    return new Iterator<>() {
+                        @Override
+                        public boolean hasNext() {
+                            return values.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, Ticket> next() {
+                            Ticket ticket = values.next();
+                            return Map.entry(ticket.getCode(), ticket);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return tickets.size();
+                }
+            };
+        }
+    }
 }
@@ -3,21 +3,27 @@ package pl.edu.agh.zurawskipiotr.cinemachain.domain.customer;
 import pl.edu.agh.zurawskipiotr.cinemachain.domain.sales.Ticket;
 import pl.edu.agh.zurawskipiotr.cinemachain.domain.screening.Screening;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
 import java.util.UUID;
 
 public class Customer {
     private final String id;
-    private final List<Ticket> ownTickets = new ArrayList<>();
+    private final CustomerTickets ownTickets = new CustomerTickets();
 
     private String firstName;
     private String lastName;
-    private String email;
+    private volatile String email;
+    private volatile CustomerEmailIndex emailIndex;
 
     public Customer(String firstName, String lastName, String email) {
-        this.id = UUID.randomUUID().toString();
+        this(UUID.randomUUID().toString(), firstName, lastName, email);
+    }
+
+    public Customer(String id, String firstName, String lastName, String email) {
+        this.id = Objects.requireNonNull(id, "id");
         this.firstName = firstName;
         this.lastName = lastName;
         this.email = email;
@@ -48,26 +54,85 @@ public class Customer {
     }
 
     public void setEmail(String email) {
+        CustomerEmailIndex index = emailIndex;
+        if (index != null) {
+            index.changeEmail(this, email);
+        } else {
+            this.email = email;
+        }
+    }
+
+    CustomerEmailIndex getEmailIndex() {
+        return emailIndex;
+    }
+
+    // ustawiane tylko przez CustomerEmailIndex przy rejestracji klienta
+    void setEmailIndex(CustomerEmailIndex emailIndex) {
+        this.emailIndex = emailIndex;
+    }
+
+    // zmiana e-maila zarejestrowanego klienta idzie przez indeks, żeby sprawdzić unikalność
+    void assignEmail(String email) {
         this.email = email;
     }
 
-    public List<Ticket> getOwnTickets() {
-        return Collections.unmodifiableList(ownTickets);
+    // kopia w kolejności zakupu, a nie widok: bilety chroni monitor klienta, więc widok czytany bez niego
+    // mógłby trafić na zmianę w trakcie iteracji
+    public synchronized List<Ticket> getOwnTickets() {
+        return List.copyOf(ownTickets.all());
+    }
+
+    // strona biletów w kolejności zakupu
+    public synchronized List<Ticket> getOwnTickets(int offset, int limit) {
+        validatePage(offset, limit);
+        return ownTickets.page(offset, limit);
+    }
+
+    public synchronized int getOwnTicketCount() {
+        return ownTickets.size();
+    }
+
+    public synchronized List<Ticket> getTicketsFor(Screening screening) {
+        Objects.requireNonNull(screening, "screening");
+        return ownTickets.forScreening(screening);
+    }
+
+    // bilety na seanse od teraz, według godziny seansu
+    public List<Ticket> getUpcomingTickets(int offset, int limit) {
+        return getUpcomingTickets(LocalDateTime.now(), offset, limit);
+    }
+
+    public synchronized List<Ticket> getUpcomingTickets(LocalDateTime fromInclusive, int offset, int limit) {
+        Objects.requireNonNull(fromInclusive, "fromInclusive");
+        validatePage(offset, limit);
+        return ownTickets.upcoming(fromInclusive, offset, limit);
+    }
+
+    public synchronized void addOwnTicket(Ticket ticket) {
+        ownTickets.add(ticket);
+    }
+
+    public synchronized void addOwnTickets(Collection<Ticket> tickets) {
+        for (Ticket ticket : tickets) {
+            ownTickets.add(ticket);
+        }
     }
 
-    public void addOwnTicket(Ticket ticket) {
-        this.ownTickets.add(ticket);
+    public synchronized void removeOwnTicket(Ticket ticket) {
+        if (ticket == null) return;
+        ownTickets.remove(ticket);
     }
 
-    public void removeOwnTicket(Ticket ticket) {
-        this.ownTickets.remove(ticket);
+    private static void validatePage(int offset, int limit) {
+        if (offset < 0) throw new IllegalArgumentException("Offset must be >= 0");
+        if (limit <= 0) throw new IllegalArgumentException("Limit must be > 0");
     }
 
     public List<String> getReservationsFor(Screening screening) {
         return screening.getReservedSeatsFor(this);
     }
 
-    public void printOwnTickets() {
+    public synchronized void printOwnTickets() {
         if (ownTickets.isEmpty()) {
             System.out.println(firstName + " " + lastName + " - brak biletów.");
             return;
@@ -75,13 +140,19 @@ public class Customer {
 
         System.out.println("Bilety klienta: " + firstName + " " + lastName);
 
-        for (Ticket t : ownTickets) {
-            System.out.println("- " + t.getCode()
-                    + " | kino: " + t.getScreening().getCinema().getName()
-                    + " | sala: " + t.getScreening().getHall().getName()
-                    + " | film: " + t.getScreening().getMovie().title()
-                    + " | godzina: " + t.getScreening().getStartTime()
-                    + " | miejsce: " + t.getSeat().getCode());
+        // kolejne bilety zwykle są na ten sam seans, więc opis seansu składamy raz na seans
+        Screening described = null;
+        String screeningPart = "";
+        for (Ticket t : ownTickets.all()) {
+            Screening screening = t.getScreening();
+            if (screening != described) {
+                described = screening;
+                screeningPart = " | kino: " + screening.getCinema().getName()
+                        + " | sala: " + screening.getHall().getName()
+                        + " | film: " + screening.getMovie().title()
+                        + " | godzina: " + screening.getStartTime();
+            }
+            System.out.println("- " + t.getCode() + screeningPart + " | miejsce: " + t.getSeat().getCode());
         }
     }
 
@@ -0,0 +1,67 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.domain.customer;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Indeks klientów po znormalizowanym e-mailu (trim + małe litery); Customer.setEmail aktualizuje go sam.
+public final class CustomerEmailIndex {
+
+    private final Map<String, Customer> customersByEmail = new ConcurrentHashMap<>();
+
+    public static String normalize(String email) {
+        if (email == null || email.isBlank()) return null;
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public Customer find(String email) {
+        String normalized = normalize(email);
+        return (normalized == null) ? null : customersByEmail.get(normalized);
+    }
+
+    public int size() {
+        return customersByEmail.size();
+    }
+
+    public synchronized boolean add(Customer customer) {
+        if (customer.getEmailIndex() != null && customer.getEmailIndex() != this) {
+            throw new IllegalStateException("Customer is already registered in another chain: " + customer.getId());
+        }
+
+        String normalized = normalize(customer.getEmail());
+        if (normalized != null) {
+            Customer existing = customersByEmail.putIfAbsent(normalized, customer);
+            if (existing != null && existing != customer) return false;
+        }
+        customer.setEmailIndex(this);
+        return true;
+    }
+
+    public synchronized void remove(Customer customer) {
+        if (customer.getEmailIndex() != this) return;
+
+        String normalized = normalize(customer.getEmail());
+        if (normalized != null) customersByEmail.remove(normalized, customer);
+        customer.setEmailIndex(null);
+    }
+
+    synchronized void changeEmail(Customer customer, String newEmail) {
+        if (customer.getEmailIndex() != this) {
+            customer.assignEmail(newEmail);
+            return;
+        }
+
+        String oldNormalized = normalize(customer.getEmail());
+        String newNormalized = normalize(newEmail);
+        if (newNormalized != null && !newNormalized.equals(oldNormalized)) {
+            Customer existing = customersByEmail.putIfAbsent(newNormalized, customer);
+            if (existing != null && existing != customer) {
+                throw new IllegalStateException("Customer with email already exists: " + newEmail);
+            }
+        }
+        if (oldNormalized != null && !oldNormalized.equals(newNormalized)) {
+            customersByEmail.remove(oldNormalized, customer);
+        }
+        customer.assignEmail(newEmail);
+    }
+}
@@ -0,0 +1,107 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.domain.customer;
+
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.sales.Ticket;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.screening.Screening;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+// Bilety klienta z indeksami: po id (kolejność zakupu, usuwanie O(1)), po seansie i po godzinie seansu.
+// Nadchodzące bilety czytane są z indeksu godzin od podanej chwili, więc historia nie jest przeglądana.
+// Bez synchronizacji - chroni ją Customer.
+final class CustomerTickets {
+
+    private final Map<Long, Ticket> byId = new LinkedHashMap<>();
+    private final Map<Screening, Map<Long, Ticket>> byScreening = new HashMap<>();
+    // seanse z co najmniej jednym biletem według godziny rozpoczęcia (lista w kolejności pierwszego zakupu)
+    private final NavigableMap<LocalDateTime, List<Screening>> screeningsByStart = new TreeMap<>();
+
+    int size() {
+        return byId.size();
+    }
+
+    boolean isEmpty() {
+        return byId.isEmpty();
+    }
+
+    void add(Ticket ticket) {
+        if (byId.putIfAbsent(ticket.getId(), ticket) != null) return;
+
+        Screening screening = ticket.getScreening();
+        Map<Long, Ticket> forScreening = byScreening.get(screening);
+        if (forScreening == null) {
+            forScreening = new LinkedHashMap<>();
+            byScreening.put(screening, forScreening);
+            screeningsByStart.computeIfAbsent(screening.getStartTime(), t -> new ArrayList<>(1)).add(screening);
+        }
+        forScreening.put(ticket.getId(), ticket);
+    }
+
+    boolean remove(Ticket ticket) {
+        if (!byId.remove(ticket.getId(), ticket)) return false;
+
+        Screening screening = ticket.getScreening();
+        Map<Long, Ticket> forScreening = byScreening.get(screening);
+        forScreening.remove(ticket.getId());
+        if (forScreening.isEmpty()) {
+            byScreening.remove(screening);
+            List<Screening> atStart = screeningsByStart.get(screening.getStartTime());
+            atStart.remove(screening);
+            if (atStart.isEmpty()) screeningsByStart.remove(screening.getStartTime());
+        }
+        return true;
+    }
+
+    Collection<Ticket> all() {
+        return byId.values();
+    }
+
+    List<Ticket> page(int offset, int limit) {
+        return page(byId.values().iterator(), offset, limit);
+    }
+
+    List<Ticket> forScreening(Screening screening) {
+        Map<Long, Ticket> forScreening = byScreening.get(screening);
+        return (forScreening == null) ? List.of() : List.copyOf(forScreening.values());
+    }
+
+    // bilety na seanse rozpoczynające się od fromInclusive, według godziny seansu
+    List<Ticket> upcoming(LocalDateTime fromInclusive, int offset, int limit) {
+        List<Ticket> result = new ArrayList<>(Math.min(limit, 64));
+        int skipped = 0;
+        for (List<Screening> atStart : screeningsByStart.tailMap(fromInclusive, true).values()) {
+            for (Screening screening : atStart) {
+                Map<Long, Ticket> forScreening = byScreening.get(screening);
+                if (skipped + forScreening.size() <= offset) {
+                    skipped += forScreening.size();
+                    continue;
+                }
+                for (Ticket ticket : forScreening.values()) {
+                    if (skipped++ < offset) continue;
+                    result.add(ticket);
+                    if (result.size() == limit) return result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static List<Ticket> page(Iterator<Ticket> tickets, int offset, int limit) {
+        List<Ticket> result = new ArrayList<>(Math.min(limit, 64));
+        for (int i = 0; i < offset && tickets.hasNext(); i++) {
+            tickets.next();
+        }
+        while (result.size() < limit && tickets.hasNext()) {
+            result.add(tickets.next());
+        }
+        return result;
+    }
+}
@@ -4,23 +4,33 @@ import pl.edu.agh.zurawskipiotr.cinemachain.domain.customer.Customer;
 import pl.edu.agh.zurawskipiotr.cinemachain.domain.screening.Screening;
 import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.Seat;
 
-import java.util.UUID;
+import java.util.Objects;
 
 public class Ticket {
-    private final String code;
+    private final long id;
     private final Screening screening;
     private final Seat seat;
     private final Customer owner;
 
     public Ticket(Screening screening, Seat seat, Customer owner) {
-        this.code = UUID.randomUUID().toString();
+        this(Objects.requireNonNull(screening, "screening").nextTicketId(), screening, seat, owner);
+    }
+
+    public Ticket(long id, Screening screening, Seat seat, Customer owner) {
+        if (id <= 0) throw new IllegalArgumentException("Invalid ticket id: " + id);
+        this.id = id;
         this.screening = screening;
         this.seat = seat;
         this.owner = owner;
     }
 
+    public long getId() {
+        return id;
+    }
+
+    // postać drukowana liczona na żądanie, żeby bilet nie trzymał osobnego napisu
     public String getCode() {
-        return code;
+        return TicketIds.format(id);
     }
 
     public Screening getScreening() {
@@ -38,7 +48,7 @@ public class Ticket {
     @Override
     public String toString() {
         return "Ticket{" +
-                "code='" + code + '\'' +
+                "code='" + getCode() + '\'' +
                 ", movie=" + screening.getMovie().title() +
                 ", time=" + screening.getStartTime() +
                 ", seat=" + seat.getCode() +
@@ -0,0 +1,36 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.domain.sales;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Kolejne identyfikatory biletów jednego seansu. Prefiks jest przydzielany przy pierwszym bilecie,
+// więc seanse, na które nic nie sprzedano, nie zużywają prefiksów.
+public final class TicketIdGenerator {
+
+    private static final long UNASSIGNED = 0L;
+
+    private final AtomicLong next = new AtomicLong(UNASSIGNED);
+
+    public long next() {
+        while (true) {
+            long current = next.get();
+            if (current == UNASSIGNED) {
+                next.compareAndSet(UNASSIGNED, TicketIds.compose(TicketIds.allocatePrefix(), 0));
+                continue;
+            }
+            if (TicketIds.sequenceOf(current) == TicketIds.MAX_SEQUENCE) {
+                throw new IllegalStateException("Ticket sequence exhausted for prefix " + TicketIds.prefixOf(current));
+            }
+            if (next.compareAndSet(current, current + 1)) return current;
+        }
+    }
+
+    // odtworzony bilet: kolejne numery z tym samym prefiksem nie mogą go powtórzyć
+    public void observe(long id) {
+        TicketIds.reservePrefix(TicketIds.prefixOf(id));
+        next.accumulateAndGet(id, (current, seen) -> {
+            if (current == UNASSIGNED) return seen + 1;
+            if (TicketIds.prefixOf(current) == TicketIds.prefixOf(seen) && seen >= current) return seen + 1;
+            return current;
+        });
+    }
+}
@@ -0,0 +1,127 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.domain.sales;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// 64-bitowy identyfikator biletu: 32 bity prefiksu (numer seansu nadawany w obrębie procesu) i 32 bity
+// numeru kolejnego w ramach prefiksu. Postać drukowana to base32 Crockforda bez zer wiodących
+// z jednym znakiem kontrolnym (Luhn mod 32), który wyłapuje każdą pojedynczą literówkę i prawie każdą
+// zamianę sąsiednich znaków.
+public final class TicketIds {
+
+    public static final long MAX_SEQUENCE = 0xFFFF_FFFFL;
+
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int RADIX = ALPHABET.length;
+    private static final int[] DIGITS = new int[128];
+
+    // prefiks 0 nie jest nadawany, więc identyfikator biletu jest zawsze dodatni
+    private static final AtomicInteger NEXT_PREFIX = new AtomicInteger(1);
+
+    static {
+        Arrays.fill(DIGITS, -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            DIGITS[ALPHABET[i]] = i;
+            DIGITS[Character.toLowerCase(ALPHABET[i])] = i;
+        }
+        // znaki łatwe do pomylenia czytane tak jak w base32 Crockforda
+        DIGITS['O'] = DIGITS['o'] = 0;
+        DIGITS['I'] = DIGITS['i'] = 1;
+        DIGITS['L'] = DIGITS['l'] = 1;
+    }
+
+    private TicketIds() {
+    }
+
+    public static long compose(int prefix, long sequence) {
+        if (prefix <= 0) throw new IllegalArgumentException("Ticket prefix must be > 0");
+        if (sequence < 0 || sequence > MAX_SEQUENCE) throw new IllegalArgumentException("Ticket sequence out of range: " + sequence);
+        return ((long) prefix << 32) | sequence;
+    }
+
+    public static int prefixOf(long id) {
+        return (int) (id >>> 32);
+    }
+
+    public static long sequenceOf(long id) {
+        return id & MAX_SEQUENCE;
+    }
+
+    public static String format(long id) {
+        if (id <= 0) throw new IllegalArgumentException("Invalid ticket id: " + id);
+
+        char[] buffer = new char[14];
+        int pos = buffer.length - 1;
+        int[] digits = new int[13];
+        int count = 0;
+        for (long v = id; v != 0; v >>>= 5) {
+            digits[count++] = (int) (v & (RADIX - 1));
+        }
+
+        // znak kontrolny na końcu, cyfry od najstarszej
+        buffer[pos] = ALPHABET[checkDigit(digits, count)];
+        for (int i = 0; i < count; i++) {
+            buffer[--pos] = ALPHABET[digits[i]];
+        }
+        return new String(buffer, pos, buffer.length - pos);
+    }
+
+    public static long parse(String code) {
+        if (code == null) throw new IllegalArgumentException("Ticket code is required");
+        String s = code.strip().replace("-", "");
+        if (s.length() < 2 || s.length() > 14) {
+            throw new IllegalArgumentException("Invalid ticket code: " + code);
+        }
+
+        int count = s.length() - 1;
+        int[] digits = new int[count];
+        long id = 0L;
+        for (int i = 0; i < count; i++) {
+            int d = digit(s.charAt(i), code);
+            // 13 cyfr base32 to 65 bitów, więc najstarsza cyfra pełnej długości mieści tylko 4 bity
+            if (count == 13 && i == 0 && d >= RADIX / 2) {
+                throw new IllegalArgumentException("Invalid ticket code: " + code);
+            }
+            id = (id << 5) | d;
+            digits[count - 1 - i] = d;
+        }
+
+        if (digit(s.charAt(count), code) != checkDigit(digits, count) || id <= 0) {
+            throw new IllegalArgumentException("Invalid ticket code: " + code);
+        }
+        return id;
+    }
+
+    public static int allocatePrefix() {
+        int prefix = NEXT_PREFIX.getAndIncrement();
+        if (prefix <= 0) throw new IllegalStateException("Ticket prefixes exhausted");
+        return prefix;
+    }
+
+    // prefiksy odtworzonych biletów nie mogą zostać nadane ponownie nowym seansom
+    public static void reservePrefix(int prefix) {
+        NEXT_PREFIX.accumulateAndGet(prefix, (next, reserved) -> Math.max(next, reserved + 1));
+    }
+
+    // Luhn mod 32 liczony od najmłodszej cyfry
+    private static int checkDigit(int[] digitsLeastSignificantFirst, int count) {
+        int sum = 0;
+        boolean doubled = true;
+        for (int i = 0; i < count; i++) {
+            int addend = digitsLeastSignificantFirst[i];
+            if (doubled) {
+                addend *= 2;
+                addend = addend / RADIX + addend % RADIX;
+            }
+            sum += addend;
+            doubled = !doubled;
+        }
+        return (RADIX - sum % RADIX) % RADIX;
+    }
+
+    private static int digit(char c, String code) {
+        int d = (c < DIGITS.length) ? DIGITS[c] : -1;
+        if (d < 0) throw new IllegalArgumentException("Invalid ticket code: " + code);
+        return d;
+    }
+}
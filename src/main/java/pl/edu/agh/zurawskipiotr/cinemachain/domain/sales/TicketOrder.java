@@ -0,0 +1,30 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.domain.sales;
+
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.screening.Screening;
+
+import java.util.List;
+import java.util.Objects;
+
+// Pozycja zakupu zbiorczego: miejsca na jednym seansie, opcjonalnie z tokenem rezerwacji gościa.
+public record TicketOrder(Screening screening, String reservationToken, List<String> seatCodes) {
+    public TicketOrder {
+        Objects.requireNonNull(screening, "screening");
+        Objects.requireNonNull(seatCodes, "seatCodes");
+        if (seatCodes.isEmpty()) {
+            throw new IllegalArgumentException("No seat codes provided");
+        }
+        if (reservationToken != null && reservationToken.isBlank()) {
+            throw new IllegalArgumentException("Reservation token is required");
+        }
+        seatCodes = List.copyOf(seatCodes);
+    }
+
+    public static TicketOrder of(Screening screening, String... seatCodes) {
+        return new TicketOrder(screening, null, List.of(seatCodes));
+    }
+
+    public static TicketOrder withToken(Screening screening, String reservationToken, String... seatCodes) {
+        Objects.requireNonNull(reservationToken, "reservationToken");
+        return new TicketOrder(screening, reservationToken, List.of(seatCodes));
+    }
+}
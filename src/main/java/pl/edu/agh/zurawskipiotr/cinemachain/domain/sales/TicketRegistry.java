@@ -0,0 +1,234 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.domain.sales;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+// Bilety według 64-bitowego identyfikatora: segmenty z adresowaniem otwartym na tablicach long[],
+// bez opakowywania kluczy w Long i bez węzłów mapy. Każdy segment ma własny monitor i powstaje przy pierwszym
+// bilecie, więc rejestr seansu, na który nic nie sprzedano, to jedna pusta tablica.
+public final class TicketRegistry {
+
+    private static final int SEGMENTS = 16;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private static final VarHandle SEGMENTS_ARRAY = MethodHandles.arrayElementVarHandle(Segment[].class);
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    // zwraca bilet już zapisany pod tym identyfikatorem albo null, jeśli dodano nowy
+    public Ticket putIfAbsent(Ticket ticket) {
+        long id = ticket.getId();
+        long hash = mix(id);
+        return segmentForWrite((int) (hash >>> 60)).putIfAbsent(id, (int) hash, ticket);
+    }
+
+    // wiele biletów naraz: bilety są sortowane po segmentach, a monitor każdego segmentu brany raz;
+    // zwraca bilety, których identyfikatory były już zajęte
+    public List<Ticket> putAllIfAbsent(Collection<Ticket> tickets) {
+        Ticket[] batch = tickets.toArray(Ticket[]::new);
+        long[] hashes = new long[batch.length];
+        int[] segmentStart = new int[SEGMENTS + 1];
+        for (int i = 0; i < batch.length; i++) {
+            hashes[i] = mix(batch[i].getId());
+            segmentStart[(int) (hashes[i] >>> 60) + 1]++;
+        }
+        for (int s = 0; s < SEGMENTS; s++) {
+            segmentStart[s + 1] += segmentStart[s];
+        }
+
+        int[] order = new int[batch.length];
+        int[] fill = segmentStart.clone();
+        for (int i = 0; i < batch.length; i++) {
+            order[fill[(int) (hashes[i] >>> 60)]++] = i;
+        }
+
+        List<Ticket> rejected = new ArrayList<>(0);
+        for (int s = 0; s < SEGMENTS; s++) {
+            if (segmentStart[s] == segmentStart[s + 1]) continue;
+            segmentForWrite(s).putAllIfAbsent(batch, hashes, order, segmentStart[s], segmentStart[s + 1], rejected);
+        }
+        return rejected;
+    }
+
+    public Ticket get(long id) {
+        long hash = mix(id);
+        Segment segment = segment((int) (hash >>> 60));
+        return (segment == null) ? null : segment.get(id, (int) hash);
+    }
+
+    public boolean remove(Ticket ticket) {
+        long id = ticket.getId();
+        long hash = mix(id);
+        Segment segment = segment((int) (hash >>> 60));
+        return segment != null && segment.remove(id, (int) hash, ticket);
+    }
+
+    public int size() {
+        int size = 0;
+        for (int s = 0; s < SEGMENTS; s++) {
+            Segment segment = segment(s);
+            if (segment != null) size += segment.size();
+        }
+        return size;
+    }
+
+    public List<Ticket> values() {
+        List<Ticket> values = new ArrayList<>();
+        for (int s = 0; s < SEGMENTS; s++) {
+            Segment segment = segment(s);
+            if (segment != null) segment.copyValuesTo(values);
+        }
+        return values;
+    }
+
+    // Przechodzi segmenty po kolei i pod monitorem segmentu bierze tylko jego bilety, więc nie kopiuje całego
+    // rejestru z góry. Bilety dodane lub usunięte w trakcie mogą zostać pominięte albo odwiedzone, każdy najwyżej raz.
+    public Iterator<Ticket> iterator() {
+        return new Iterator<>() {
+            private int nextSegment;
+            private Ticket[] current = new Ticket[0];
+            private int position;
+
+            @Override
+            public boolean hasNext() {
+                while (position == current.length) {
+                    if (nextSegment == SEGMENTS) return false;
+                    Segment segment = segment(nextSegment++);
+                    if (segment != null) {
+                        current = segment.values();
+                        position = 0;
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public Ticket next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return current[position++];
+            }
+        };
+    }
+
+    private Segment segment(int index) {
+        return (Segment) SEGMENTS_ARRAY.getAcquire(segments, index);
+    }
+
+    private Segment segmentForWrite(int index) {
+        Segment segment = segment(index);
+        if (segment != null) return segment;
+        Segment created = new Segment();
+        Segment witness = (Segment) SEGMENTS_ARRAY.compareAndExchange(segments, index, null, created);
+        return (witness == null) ? created : witness;
+    }
+
+    // kolejne numery biletów różnią się tylko najmłodszymi bitami, więc klucz jest mieszany (finalizer MurmurHash3)
+    private static long mix(long id) {
+        long h = id;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static final class Segment {
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private Ticket[] values = new Ticket[INITIAL_CAPACITY];
+        private int size;
+
+        synchronized Ticket get(long id, int hash) {
+            int slot = find(keys, values, id, hash);
+            return values[slot];
+        }
+
+        synchronized Ticket putIfAbsent(long id, int hash, Ticket ticket) {
+            return insert(id, hash, ticket);
+        }
+
+        synchronized void putAllIfAbsent(Ticket[] batch, long[] hashes, int[] order, int from, int to, List<Ticket> rejected) {
+            for (int i = from; i < to; i++) {
+                Ticket ticket = batch[order[i]];
+                if (insert(ticket.getId(), (int) hashes[order[i]], ticket) != null) rejected.add(ticket);
+            }
+        }
+
+        private Ticket insert(long id, int hash, Ticket ticket) {
+            int slot = find(keys, values, id, hash);
+            if (values[slot] != null) return values[slot];
+
+            keys[slot] = id;
+            values[slot] = ticket;
+            if (++size * 2 > keys.length) resize();
+            return null;
+        }
+
+        synchronized boolean remove(long id, int hash, Ticket ticket) {
+            int slot = find(keys, values, id, hash);
+            if (values[slot] != ticket) return false;
+
+            // usuwanie z przesunięciem wstecz, żeby nie zostawiać znaczników po usuniętych wpisach
+            int mask = keys.length - 1;
+            int hole = slot;
+            for (int next = (hole + 1) & mask; values[next] != null; next = (next + 1) & mask) {
+                int home = (int) mix(keys[next]) & mask;
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    keys[hole] = keys[next];
+                    values[hole] = values[next];
+                    hole = next;
+                }
+            }
+            keys[hole] = 0L;
+            values[hole] = null;
+            size--;
+            return true;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized Ticket[] values() {
+            Ticket[] result = new Ticket[size];
+            int count = 0;
+            for (Ticket value : values) {
+                if (value != null) result[count++] = value;
+            }
+            return result;
+        }
+
+        synchronized void copyValuesTo(List<Ticket> target) {
+            for (Ticket value : values) {
+                if (value != null) target.add(value);
+            }
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            Ticket[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new Ticket[oldValues.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] == null) continue;
+                int slot = find(keys, values, oldKeys[i], (int) mix(oldKeys[i]));
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+
+        private static int find(long[] keys, Ticket[] values, long id, int hash) {
+            int mask = keys.length - 1;
+            int slot = hash & mask;
+            while (values[slot] != null && keys[slot] != id) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+}
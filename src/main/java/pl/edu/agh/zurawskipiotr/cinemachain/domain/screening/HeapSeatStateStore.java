@@ -0,0 +1,58 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.domain.screening;
+
+import java.util.Arrays;
+
+// domyślny magazyn stanu: trzy tablice na stercie indeksowane pozycją miejsca
+final class HeapSeatStateStore implements SeatStateStore {
+
+    private final byte[] states;
+    private final int[] owners;
+    private final long[] heldAtMillis;
+
+    HeapSeatStateStore(int seatCount) {
+        this.states = new byte[seatCount];
+        this.owners = new int[seatCount];
+        this.heldAtMillis = new long[seatCount];
+        Arrays.fill(owners, -1);
+    }
+
+    // kopia stanu z innego magazynu (plan oddający sloty areny)
+    HeapSeatStateStore(SeatStateStore source, int seatCount) {
+        this(seatCount);
+        for (int i = 0; i < seatCount; i++) {
+            states[i] = source.state(i);
+            owners[i] = source.owner(i);
+            heldAtMillis[i] = source.heldAtMillis(i);
+        }
+    }
+
+    @Override
+    public byte state(int index) {
+        return states[index];
+    }
+
+    @Override
+    public void setState(int index, byte state) {
+        states[index] = state;
+    }
+
+    @Override
+    public int owner(int index) {
+        return owners[index];
+    }
+
+    @Override
+    public void setOwner(int index, int owner) {
+        owners[index] = owner;
+    }
+
+    @Override
+    public long heldAtMillis(int index) {
+        return heldAtMillis[index];
+    }
+
+    @Override
+    public void setHeldAtMillis(int index, long heldAtMillis) {
+        this.heldAtMillis[index] = heldAtMillis;
+    }
+}
@@ -0,0 +1,98 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.domain.screening;
+
+import pl.edu.agh.zurawskipiotr.cinemachain.pricing.MinorUnitPricingPolicy;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.LongAdder;
+
+// Liczniki FREE/RESERVED/SOLD i przychodu aktualizowane przy każdej zmianie stanu miejsca,
+// więc odczyt nie przegląda planu. Licznik seansu przekazuje zmiany do licznika kina, do którego jest przypięty.
+public final class OccupancyCounters {
+
+    private final LongAdder capacity = new LongAdder();
+    private final LongAdder free = new LongAdder();
+    private final LongAdder reserved = new LongAdder();
+    private final LongAdder sold = new LongAdder();
+    private final LongAdder revenueMinor = new LongAdder();
+
+    private volatile OccupancyCounters parent;
+
+    public OccupancyCounters() {
+    }
+
+    OccupancyCounters(int seatCount) {
+        capacity.add(seatCount);
+        free.add(seatCount);
+    }
+
+    public long capacity() {
+        return capacity.sum();
+    }
+
+    public long freeSeats() {
+        return free.sum();
+    }
+
+    public long reservedSeats() {
+        return reserved.sum();
+    }
+
+    public long soldSeats() {
+        return sold.sum();
+    }
+
+    public long revenueMinor() {
+        return revenueMinor.sum();
+    }
+
+    public BigDecimal revenue() {
+        return MinorUnitPricingPolicy.fromMinorUnits(revenueMinor());
+    }
+
+    // wywoływane pod blokadą miejsca; soldValueMinor liczy się tylko przy przejściu do/z SOLD
+    void transition(SeatStatus from, SeatStatus to, long soldValueMinor) {
+        if (from == to) return;
+        apply(from, to, soldValueMinor);
+        OccupancyCounters current = parent;
+        if (current != null) current.apply(from, to, soldValueMinor);
+    }
+
+    // wywoływane pod wszystkimi blokadami planu (albo przed ich utworzeniem, gdy liczniki stoją), więc żadna zmiana
+    // nie zostanie policzona w kinie dwa razy ani wcale
+    void attachTo(OccupancyCounters newParent) {
+        if (parent == newParent) return;
+        detach();
+        newParent.addAll(this, 1);
+        parent = newParent;
+    }
+
+    void detach() {
+        OccupancyCounters current = parent;
+        if (current == null) return;
+        current.addAll(this, -1);
+        parent = null;
+    }
+
+    private void apply(SeatStatus from, SeatStatus to, long soldValueMinor) {
+        counterFor(from).decrement();
+        counterFor(to).increment();
+        if (to == SeatStatus.SOLD) revenueMinor.add(soldValueMinor);
+        else if (from == SeatStatus.SOLD) revenueMinor.add(-soldValueMinor);
+    }
+
+    private void addAll(OccupancyCounters other, int sign) {
+        capacity.add(sign * other.capacity());
+        free.add(sign * other.freeSeats());
+        reserved.add(sign * other.reservedSeats());
+        sold.add(sign * other.soldSeats());
+        revenueMinor.add(sign * other.revenueMinor());
+    }
+
+    private LongAdder counterFor(SeatStatus status) {
+        return switch (status) {
+            case FREE -> free;
+            case RESERVED -> reserved;
+            case SOLD -> sold;
+        };
+    }
+}
@@ -0,0 +1,84 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.domain.screening;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Właściciele rezerwacji jednego planu jako małe liczby. Klient i token gościa dostają uchwyt przy pierwszej
+// rezerwacji; wtedy też raz budowany jest klucz tekstowy ("C:" + id, "G:" + token) dla dziennika i wydruków.
+// Kolejne rezerwacje, zakupy i zapytania szukają uchwytu po samym id albo tokenie, bez sklejania napisów.
+final class OwnerHandles {
+
+    // nie podano właściciela
+    static final int NONE = -1;
+    // podano właściciela, który w tym planie niczego nie rezerwował
+    static final int UNKNOWN = -2;
+
+    private static final String CUSTOMER_PREFIX = "C:";
+    private static final String GUEST_PREFIX = "G:";
+
+    private final Map<String, Integer> byKey = new ConcurrentHashMap<>();
+    private final Map<String, Integer> byCustomerId = new ConcurrentHashMap<>();
+    private final Map<String, Integer> byGuestToken = new ConcurrentHashMap<>();
+    private static final String[] NO_KEYS = new String[0];
+
+    // tablica powstaje przy pierwszym właścicielu, bo większość planów nie ma żadnego
+    private volatile String[] keys = NO_KEYS;
+    private int count;
+
+    int customer(String customerId) {
+        Integer handle = byCustomerId.get(customerId);
+        return (handle != null) ? handle : forKey(CUSTOMER_PREFIX + customerId);
+    }
+
+    int guest(String token) {
+        Integer handle = byGuestToken.get(token);
+        return (handle != null) ? handle : forKey(GUEST_PREFIX + token);
+    }
+
+    int findCustomer(String customerId) {
+        Integer handle = byCustomerId.get(customerId);
+        return (handle == null) ? UNKNOWN : handle;
+    }
+
+    int findGuest(String token) {
+        Integer handle = byGuestToken.get(token);
+        return (handle == null) ? UNKNOWN : handle;
+    }
+
+    // adapter dla API z kluczami tekstowymi (dziennik, migawka, starsze wywołania)
+    int forKey(String ownerKey) {
+        Integer handle = byKey.get(ownerKey);
+        return (handle != null) ? handle : register(ownerKey);
+    }
+
+    int find(String ownerKey) {
+        if (ownerKey == null) return NONE;
+        Integer handle = byKey.get(ownerKey);
+        return (handle == null) ? UNKNOWN : handle;
+    }
+
+    String keyOf(int handle) {
+        return (handle < 0) ? null : keys[handle];
+    }
+
+    private synchronized int register(String ownerKey) {
+        Integer existing = byKey.get(ownerKey);
+        if (existing != null) return existing;
+
+        int handle = count++;
+        String[] current = keys;
+        if (handle == current.length) current = Arrays.copyOf(current, Math.max(8, handle * 2));
+        current[handle] = ownerKey;
+        // zapis volatile publikuje klucz, zanim uchwyt trafi do map
+        keys = current;
+
+        byKey.put(ownerKey, handle);
+        if (ownerKey.startsWith(CUSTOMER_PREFIX)) {
+            byCustomerId.put(ownerKey.substring(CUSTOMER_PREFIX.length()), handle);
+        } else if (ownerKey.startsWith(GUEST_PREFIX)) {
+            byGuestToken.put(ownerKey.substring(GUEST_PREFIX.length()), handle);
+        }
+        return handle;
+    }
+}
@@ -0,0 +1,168 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.domain.screening;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+// Koło czasowe (hashed timing wheel) zwalniające wygasłe rezerwacje.
+// Dodanie rezerwacji to O(1) (kolejka oczekujących), a wątek koła co tick przegląda tylko jeden kubełek.
+// Seanse korzystają ze wspólnego koła (shared()): jeden wątek-demon na JVM, uruchamiany przy pierwszej rezerwacji
+// i działający do końca procesu. Własne instancje (np. w benchmarkach) zatrzymuje shutdown().
+public final class ReservationExpiryScheduler {
+
+    private static final System.Logger LOG = System.getLogger(ReservationExpiryScheduler.class.getName());
+
+    private static final Duration DEFAULT_TICK = Duration.ofMillis(100);
+    private static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private static final int INIT = 0;
+    private static final int STARTED = 1;
+    private static final int SHUT_DOWN = 2;
+
+    private static final class SharedHolder {
+        private static final ReservationExpiryScheduler INSTANCE = new ReservationExpiryScheduler();
+    }
+
+    private final long tickNanos;
+    private final Hold[] wheel;
+    private final int mask;
+    private final long startNanos;
+    private final Queue<Hold> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger state = new AtomicInteger(INIT);
+    private final Thread worker;
+
+    private long tick;
+
+    public ReservationExpiryScheduler() {
+        this(DEFAULT_TICK, DEFAULT_WHEEL_SIZE);
+    }
+
+    public ReservationExpiryScheduler(Duration tickDuration, int wheelSize) {
+        Objects.requireNonNull(tickDuration, "tickDuration");
+        if (tickDuration.isZero() || tickDuration.isNegative()) {
+            throw new IllegalArgumentException("Tick duration must be positive");
+        }
+        if (wheelSize <= 0) {
+            throw new IllegalArgumentException("Wheel size must be > 0");
+        }
+
+        int size = Integer.highestOneBit(wheelSize - 1) << 1;
+        this.tickNanos = tickDuration.toNanos();
+        this.wheel = new Hold[Math.max(1, size)];
+        this.mask = wheel.length - 1;
+        this.startNanos = System.nanoTime();
+
+        this.worker = new Thread(this::run, "reservation-expiry");
+        this.worker.setDaemon(true);
+    }
+
+    public static ReservationExpiryScheduler shared() {
+        return SharedHolder.INSTANCE;
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    public void shutdown() {
+        if (this == shared()) {
+            throw new IllegalStateException("Shared reservation expiry scheduler cannot be shut down");
+        }
+        if (state.getAndSet(SHUT_DOWN) == STARTED) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    void schedule(SeatingPlan plan, int[] seatIndexes, int ownerId, long reservedAtMillis, Duration ttl) {
+        if (state.get() == SHUT_DOWN) {
+            throw new IllegalStateException("Reservation expiry scheduler is shut down");
+        }
+        long deadline = System.nanoTime() - startNanos + ttl.toNanos();
+        pending.add(new Hold(plan, seatIndexes, ownerId, reservedAtMillis, deadline));
+        if (state.get() == INIT && state.compareAndSet(INIT, STARTED)) {
+            worker.start();
+        }
+    }
+
+    private void run() {
+        while (state.get() == STARTED) {
+            long deadline = waitForNextTick();
+            if (deadline < 0) break;
+
+            transferPending();
+            expireBucket((int) (tick & mask), deadline);
+            tick++;
+        }
+    }
+
+    private long waitForNextTick() {
+        long deadline = tickNanos * (tick + 1);
+        while (true) {
+            long elapsed = System.nanoTime() - startNanos;
+            long remaining = deadline - elapsed;
+            if (remaining <= 0) return elapsed;
+            if (state.get() != STARTED) return -1;
+            LockSupport.parkNanos(this, Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(100)));
+        }
+    }
+
+    private void transferPending() {
+        Hold hold;
+        while ((hold = pending.poll()) != null) {
+            long calculated = hold.deadline / tickNanos;
+            hold.remainingRounds = (calculated - tick) / wheel.length;
+            int bucket = (int) (Math.max(calculated, tick) & mask);
+            hold.next = wheel[bucket];
+            wheel[bucket] = hold;
+        }
+    }
+
+    private void expireBucket(int bucket, long now) {
+        Hold prev = null;
+        Hold hold = wheel[bucket];
+        while (hold != null) {
+            Hold next = hold.next;
+            if (hold.remainingRounds <= 0 && hold.deadline <= now) {
+                if (prev == null) wheel[bucket] = next;
+                else prev.next = next;
+                hold.next = null;
+                fire(hold);
+            } else {
+                if (hold.remainingRounds > 0) hold.remainingRounds--;
+                prev = hold;
+            }
+            hold = next;
+        }
+    }
+
+    private void fire(Hold hold) {
+        try {
+            hold.plan.expireHold(hold.seatIndexes, hold.ownerId, hold.reservedAtMillis);
+        } catch (RuntimeException ex) {
+            LOG.log(System.Logger.Level.ERROR, "Reservation expiry failed", ex);
+        }
+    }
+
+    private static final class Hold {
+        private final SeatingPlan plan;
+        private final int[] seatIndexes;
+        private final int ownerId;
+        private final long reservedAtMillis;
+        private final long deadline;
+
+        private long remainingRounds;
+        private Hold next;
+
+        private Hold(SeatingPlan plan, int[] seatIndexes, int ownerId, long reservedAtMillis, long deadline) {
+            this.plan = plan;
+            this.seatIndexes = seatIndexes;
+            this.ownerId = ownerId;
+            this.reservedAtMillis = reservedAtMillis;
+            this.deadline = deadline;
+        }
+    }
+}
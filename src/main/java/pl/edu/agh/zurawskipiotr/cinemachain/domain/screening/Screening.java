@@ -1,20 +1,38 @@
 package pl.edu.agh.zurawskipiotr.cinemachain.domain.screening;
 
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.booking.SeatBlockReservation;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.chain.CinemaChain;
 import pl.edu.agh.zurawskipiotr.cinemachain.domain.customer.Customer;
 import pl.edu.agh.zurawskipiotr.cinemachain.domain.catalog.Movie;
 import pl.edu.agh.zurawskipiotr.cinemachain.domain.sales.Ticket;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.sales.TicketIdGenerator;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.sales.TicketIds;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.sales.TicketOrder;
 import pl.edu.agh.zurawskipiotr.cinemachain.domain.sales.TicketPurchase;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.sales.TicketRegistry;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.Cinema;
 import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.Hall;
 import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.Seat;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.SeatCategory;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.SeatIndex;
+import pl.edu.agh.zurawskipiotr.cinemachain.persistence.BookingJournal;
 import pl.edu.agh.zurawskipiotr.cinemachain.pricing.DefaultPricingPolicy;
+import pl.edu.agh.zurawskipiotr.cinemachain.pricing.MinorUnitPricingPolicy;
 import pl.edu.agh.zurawskipiotr.cinemachain.pricing.PricingPolicy;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.function.Function;
 
 public class Screening {
+    private final String id;
     private final Movie movie;
     private final Hall hall;
     private final boolean isVip;
@@ -22,9 +40,33 @@ public class Screening {
     private final LocalDateTime startTime;
 
     private final PricingPolicy pricingPolicy;
+    private final MinorUnitPricingPolicy minorUnitPricing;
+    private final SeatIndex seatIndex;
     private final SeatingPlan seatingPlan;
 
-    private final Map<String, Ticket> soldTicketsByCode = new HashMap<>();
+    private final TicketIdGenerator ticketIds = new TicketIdGenerator();
+    private final TicketRegistry soldTickets = new TicketRegistry();
+    private final SeatWaitlist waitlist = new SeatWaitlist();
+    private final SeatWaitlist.Allocator waitlistAllocator = new SeatWaitlist.Allocator() {
+        @Override
+        public long freeSeats() {
+            return seatingPlan.occupancy().freeSeats();
+        }
+
+        @Override
+        public SeatWaitlist.Allocation allocate(SeatWaitlist.Waiter<?> waiter) {
+            BookingJournal journal = journal();
+            long[] sequence = new long[1];
+            List<String> seatCodes = seatingPlan.reserveBestAvailable(waiter.ownerId, waiter.partySize, waiter.group,
+                    reservedRecord(journal, waiter.ownerId, sequence));
+            if (seatCodes.isEmpty()) return null;
+
+            CompletableFuture<Void> durable = (journal == null)
+                    ? CompletableFuture.completedFuture(null)
+                    : journal.whenDurable(sequence[0]);
+            return new SeatWaitlist.Allocation(waiter, seatCodes, durable);
+        }
+    };
 
     public Screening(
             Movie movie,
@@ -35,15 +77,49 @@ public class Screening {
             Duration reservationTtl,
             PricingPolicy pricingPolicy
     ) {
+        this(UUID.randomUUID().toString(), movie, hall, isVip, isThreeD, startTime, reservationTtl, pricingPolicy);
+    }
+
+    public Screening(
+            String id,
+            Movie movie,
+            Hall hall,
+            boolean isVip,
+            boolean isThreeD,
+            LocalDateTime startTime,
+            Duration reservationTtl,
+            PricingPolicy pricingPolicy
+    ) {
+        this.id = Objects.requireNonNull(id, "id");
         this.movie = Objects.requireNonNull(movie, "movie");
         this.hall = Objects.requireNonNull(hall, "hall");
         this.isVip = isVip;
         this.isThreeD = isThreeD;
         this.startTime = Objects.requireNonNull(startTime, "startTime");
         this.pricingPolicy = Objects.requireNonNull(pricingPolicy, "pricingPolicy");
+        this.minorUnitPricing = MinorUnitPricingPolicy.adapt(pricingPolicy);
+
+        this.seatIndex = hall.getSeatIndex();
+        this.seatingPlan = new SeatingPlan(
+                seatIndex.codeIndex(),
+                seatIndex.rowLayout(),
+                Objects.requireNonNull(reservationTtl, "reservationTtl"),
+                ReservationExpiryScheduler::shared,
+                this::seatStateArena
+        );
+        this.seatingPlan.setListener(new SeatingPlanListener() {
+            @Override
+            public void onExpiring(String ownerKey, List<String> seatCodes) {
+                BookingJournal journal = journal();
+                if (journal != null) journal.appendExpired(id, ownerKey, seatCodes);
+            }
 
-        List<String> seatCodes = hall.getSeats().stream().map(Seat::getCode).toList();
-        this.seatingPlan = new SeatingPlan(seatCodes, Objects.requireNonNull(reservationTtl, "reservationTtl"));
+            @Override
+            public void onExpired(String ownerKey, List<String> seatCodes) {
+                offerReleasedSeats();
+            }
+        });
+        this.seatingPlan.setSoldValue(index -> minorUnitPricing.calculatePriceMinor(seatIndex.seatAt(index), isVip, isThreeD));
     }
 
     public Screening(Movie movie, Hall hall, boolean isVip, boolean isThreeD, LocalDateTime startTime) {
@@ -52,15 +128,144 @@ public class Screening {
 
     public void reservePlaces(Customer customer, String... seatCodes) {
         Objects.requireNonNull(customer, "customer");
-        seatingPlan.reserve(ownerKeyForCustomer(customer), seatCodes);
+        reserve(owners().customer(customer.getId()), seatCodes);
     }
 
     public String reservePlaces(String... seatCodes) {
         String token = generateReservationToken();
-        seatingPlan.reserve(ownerKeyForGuest(token), seatCodes);
+        reserve(owners().guest(token), seatCodes);
         return token;
     }
 
+    // najlepsze dostępne miejsca obok siebie (kategoria null = dowolna)
+    public List<String> reserveBestAvailable(Customer customer, int partySize, SeatCategory categoryOrNull) {
+        Objects.requireNonNull(customer, "customer");
+        return reserveBestAvailable(owners().customer(customer.getId()), partySize, categoryOrNull);
+    }
+
+    public SeatBlockReservation reserveBestAvailable(int partySize, SeatCategory categoryOrNull) {
+        String token = generateReservationToken();
+        return new SeatBlockReservation(token, reserveBestAvailable(owners().guest(token), partySize, categoryOrNull));
+    }
+
+    private List<String> reserveBestAvailable(int ownerId, int partySize, SeatCategory categoryOrNull) {
+        int group = (categoryOrNull == null) ? -1 : categoryOrNull.ordinal();
+        BookingJournal journal = journal();
+        long[] sequence = new long[1];
+        List<String> seatCodes = seatingPlan.reserveBestAvailable(ownerId, partySize, group,
+                reservedRecord(journal, ownerId, sequence));
+        if (seatCodes.isEmpty()) {
+            throw new IllegalStateException("No " + partySize + " adjacent seats available"
+                    + (categoryOrNull == null ? "" : " in category " + categoryOrNull));
+        }
+
+        awaitDurable(journal, sequence[0]);
+        return seatCodes;
+    }
+
+    private void reserve(int ownerId, String... seatCodes) {
+        BookingJournal journal = journal();
+        long[] sequence = new long[1];
+        seatingPlan.reserve(ownerId, reservedRecord(journal, ownerId, sequence), seatCodes);
+        awaitDurable(journal, sequence[0]);
+    }
+
+    // rekord rezerwacji dopisywany przez plan pod blokadami miejsc; numer w dzienniku trafia do sequence[0]
+    private SeatChangeJournal reservedRecord(BookingJournal journal, int ownerId, long[] sequence) {
+        if (journal == null) return SeatChangeJournal.NONE;
+        return (seatCodes, reservedAtMillis) ->
+                sequence[0] = journal.appendReserved(id, owners().keyOf(ownerId), reservedAtMillis, seatCodes);
+    }
+
+    private static void awaitDurable(BookingJournal journal, long sequence) {
+        if (journal != null && sequence > 0) journal.awaitDurable(sequence);
+    }
+
+    // Oczekiwanie na partySize sąsiednich miejsc (kategoria null = dowolna), np. na pełny seans. Future kończy się,
+    // gdy zwolnione miejsca zostaną zarezerwowane dla klienta (zwykła rezerwacja z TTL); cancel() wycofuje z kolejki
+    public CompletableFuture<List<String>> joinWaitlist(Customer customer, int partySize, SeatCategory categoryOrNull) {
+        Objects.requireNonNull(customer, "customer");
+        int group = waitlistGroup(partySize, categoryOrNull);
+        return joinWaitlist(owners().customer(customer.getId()), partySize, group, seatCodes -> seatCodes);
+    }
+
+    public CompletableFuture<SeatBlockReservation> joinWaitlist(int partySize, SeatCategory categoryOrNull) {
+        int group = waitlistGroup(partySize, categoryOrNull);
+        String token = generateReservationToken();
+        return joinWaitlist(owners().guest(token), partySize, group, seatCodes -> new SeatBlockReservation(token, seatCodes));
+    }
+
+    // sprawdzane przed nadaniem uchwytu właściciela: grupa, której sala nigdy nie pomieści, nie trafia do kolejki
+    private int waitlistGroup(int partySize, SeatCategory categoryOrNull) {
+        int group = (categoryOrNull == null) ? -1 : categoryOrNull.ordinal();
+        seatingPlan.checkPartySize(partySize, group);
+        return group;
+    }
+
+    private <T> CompletableFuture<T> joinWaitlist(int ownerId, int partySize, int group, Function<List<String>, T> toResult) {
+        SeatWaitlist.Waiter<T> waiter = new SeatWaitlist.Waiter<>(ownerId, partySize, group, toResult);
+        waitlist.add(waiter);
+        // miejsca mogą być wolne już teraz
+        offerReleasedSeats();
+        return waiter.future;
+    }
+
+    public int getWaitlistSize() {
+        return waitlist.size();
+    }
+
+    // anulowanie rezerwacji: zwalnia te z podanych miejsc, które klient nadal trzyma, i oddaje je oczekującym
+    public List<String> releasePlaces(Customer customer, String... seatCodes) {
+        Objects.requireNonNull(customer, "customer");
+        return release(owners().findCustomer(customer.getId()), true, seatCodes);
+    }
+
+    public List<String> releasePlacesForToken(String reservationToken, String... seatCodes) {
+        if (reservationToken == null || reservationToken.isBlank()) {
+            throw new IllegalArgumentException("Reservation token is required");
+        }
+        return release(owners().findGuest(reservationToken), true, seatCodes);
+    }
+
+    private List<String> release(int ownerId, boolean awaitJournal, String... seatCodes) {
+        if (seatCodes == null || seatCodes.length == 0) {
+            throw new IllegalArgumentException("No seat codes provided");
+        }
+        if (ownerId < 0) return List.of();
+
+        // w dzienniku jak wygaśnięcie - odtworzenie zwalnia te same miejsca
+        BookingJournal journal = journal();
+        long[] sequence = new long[1];
+        SeatChangeJournal record = (journal == null) ? SeatChangeJournal.NONE
+                : (codes, atMillis) -> sequence[0] = journal.appendExpired(id, owners().keyOf(ownerId), codes);
+        List<String> released = seatingPlan.release(ownerId, record, seatCodes);
+        if (released.isEmpty()) return released;
+
+        if (awaitJournal) awaitDurable(journal, sequence[0]);
+        offerReleasedSeats();
+        return released;
+    }
+
+    private void offerReleasedSeats() {
+        if (waitlist.size() == 0) return;
+
+        for (SeatWaitlist.Allocation allocation : waitlist.offer(waitlistAllocator)) {
+            SeatWaitlist.Waiter<?> waiter = allocation.waiter();
+            List<String> seatCodes = allocation.seatCodes();
+
+            // oczekujący dostaje miejsca dopiero po utrwaleniu rezerwacji w dzienniku; czekamy bez blokowania,
+            // bo zwalnia też wątek wygaszania rezerwacji
+            allocation.durable().whenComplete((ignored, failure) -> {
+                if (failure != null) {
+                    waiter.future.completeExceptionally(failure);
+                } else if (!waiter.complete(seatCodes)) {
+                    // zrezygnował w międzyczasie; to może być wątek dziennika, więc bez czekania na zapis
+                    release(waiter.ownerId, false, seatCodes.toArray(String[]::new));
+                }
+            });
+        }
+    }
+
     public List<TicketPurchase> buyTicketsAsGuest(String... seatCodes) {
         return buyTicketsInternal(null, null, seatCodes);
     }
@@ -78,37 +283,237 @@ public class Screening {
     }
 
     private List<TicketPurchase> buyTicketsInternal(Customer customerOrNull, String tokenOrNull, String... seatCodes) {
-        String customerOwnerKey = (customerOrNull == null) ? null : ownerKeyForCustomer(customerOrNull);
-        String guestOwnerKey = (tokenOrNull == null) ? null : ownerKeyForGuest(tokenOrNull);
+        if (seatCodes == null || seatCodes.length == 0) {
+            throw new IllegalArgumentException("No seat codes provided");
+        }
+
+        int customerOwnerId = (customerOrNull == null) ? OwnerHandles.NONE : owners().findCustomer(customerOrNull.getId());
+        int guestOwnerId = (tokenOrNull == null) ? OwnerHandles.NONE : owners().findGuest(tokenOrNull);
         boolean isGuestWithoutToken = (customerOrNull == null && tokenOrNull == null);
 
-        seatingPlan.authorizePurchase(customerOwnerKey, guestOwnerKey, isGuestWithoutToken, seatCodes);
+        // ceny liczone przed sprzedażą, żeby błąd cennika nie zostawił miejsc SOLD bez biletów
+        Seat[] seats = new Seat[seatCodes.length];
+        BigDecimal[] prices = new BigDecimal[seatCodes.length];
+        for (int i = 0; i < seatCodes.length; i++) {
+            seats[i] = findSeatByCode(seatCodes[i]);
+            prices[i] = pricingPolicy.calculatePrice(seats[i], isVip(), isThreeD());
+        }
 
-        List<TicketPurchase> purchases = new ArrayList<>(seatCodes.length);
-        for (String code : seatCodes) {
-            Seat seat = findSeatByCode(code);
+        // bilety i rekord zakupu powstają pod blokadami miejsc, zanim miejsca staną się SOLD
+        BookingJournal journal = journal();
+        long[] sequence = new long[1];
+        String customerId = (customerOrNull == null) ? null : customerOrNull.getId();
+        List<Ticket> tickets = new ArrayList<>(seatCodes.length);
+        seatingPlan.sell(customerOwnerId, guestOwnerId, isGuestWithoutToken, (codes, atMillis) -> {
+            for (Seat seat : seats) {
+                tickets.add(new Ticket(this, seat, customerOrNull));
+            }
+            if (journal != null) sequence[0] = journal.appendPurchased(id, customerId, tickets);
+        }, seatCodes);
 
-            BigDecimal price = pricingPolicy.calculatePrice(seat, isVip(), isThreeD());
-            Ticket ticket = new Ticket(this, seat, customerOrNull);
+        List<TicketPurchase> purchases = new ArrayList<>(seatCodes.length);
+        for (int i = 0; i < seatCodes.length; i++) {
+            Ticket ticket = tickets.get(i);
 
-            purchases.add(new TicketPurchase(ticket, price));
-            seatingPlan.markSold(code);
-            soldTicketsByCode.put(ticket.getCode(), ticket);
+            purchases.add(new TicketPurchase(ticket, prices[i]));
+            soldTickets.putIfAbsent(ticket);
 
             if (customerOrNull != null) {
                 customerOrNull.addOwnTicket(ticket);
             }
         }
 
-        if (customerOwnerKey != null) seatingPlan.removeSeatCodesFromReservations(customerOwnerKey, seatCodes);
-        if (guestOwnerKey != null) seatingPlan.removeSeatCodesFromReservations(guestOwnerKey, seatCodes);
+        // zakup jest potwierdzany dopiero po zapisaniu go w dzienniku na dysku
+        awaitDurable(journal, sequence[0]);
+
+        return purchases;
+    }
+
+    // zakup na kilku seansach naraz: najpierw sprawdzane są wszystkie miejsca, potem sprzedawane wszystkie albo żadne.
+    // Plany blokowane są rosnąco według SeatingPlan.ordinal, więc współbieżne partie się nie zakleszczą
+    public static List<TicketPurchase> buyTicketsBatch(Customer customerOrNull, List<TicketOrder> orders) {
+        Objects.requireNonNull(orders, "orders");
+        if (orders.isEmpty()) {
+            throw new IllegalArgumentException("No ticket orders provided");
+        }
+
+        int lineCount = orders.size();
+        int[][] indexes = new int[lineCount][];
+        String[][] codes = new String[lineCount][];
+        Seat[][] seats = new Seat[lineCount][];
+        BigDecimal[][] prices = new BigDecimal[lineCount][];
+
+        // miejsca jednego planu ze wszystkich pozycji blokowane są jednym lockSeats
+        Map<SeatingPlan, BitSet> seatsByPlan = new TreeMap<>(Comparator.comparingLong(plan -> plan.ordinal));
+        for (int line = 0; line < lineCount; line++) {
+            Screening screening = Objects.requireNonNull(orders.get(line), "order").screening();
+            codes[line] = orders.get(line).seatCodes().toArray(String[]::new);
+            indexes[line] = screening.seatingPlan.resolveIndexes(codes[line]);
+            seats[line] = new Seat[codes[line].length];
+            prices[line] = new BigDecimal[codes[line].length];
+
+            BitSet listed = seatsByPlan.computeIfAbsent(screening.seatingPlan, plan -> new BitSet());
+            for (int i = 0; i < codes[line].length; i++) {
+                int index = indexes[line][i];
+                if (listed.get(index)) {
+                    throw new IllegalArgumentException("Seat listed twice in batch: " + codes[line][i]);
+                }
+                listed.set(index);
+                seats[line][i] = screening.seatIndex.seatAt(index);
+                prices[line][i] = screening.pricingPolicy.calculatePrice(seats[line][i], screening.isVip, screening.isThreeD);
+            }
+        }
+
+        String customerId = (customerOrNull == null) ? null : customerOrNull.getId();
+        List<List<Ticket>> tickets = new ArrayList<>(lineCount);
+        Map<BookingJournal, List<List<Ticket>>> journalSections = new LinkedHashMap<>();
+        Map<BookingJournal, Long> sequences = new LinkedHashMap<>();
+
+        List<SeatingPlan> plans = new ArrayList<>(seatsByPlan.keySet());
+        long[] lockedStripes = new long[plans.size()];
+        int lockedPlans = 0;
+        try {
+            for (; lockedPlans < plans.size(); lockedPlans++) {
+                SeatingPlan plan = plans.get(lockedPlans);
+                lockedStripes[lockedPlans] = plan.lockSeats(seatsByPlan.get(plan).stream().toArray());
+            }
+
+            for (int line = 0; line < lineCount; line++) {
+                String token = orders.get(line).reservationToken();
+                SeatingPlan plan = orders.get(line).screening().seatingPlan;
+                plan.checkPurchasable(
+                        (customerOrNull == null) ? OwnerHandles.NONE : plan.owners().findCustomer(customerOrNull.getId()),
+                        (token == null) ? OwnerHandles.NONE : plan.owners().findGuest(token),
+                        customerOrNull == null && token == null,
+                        codes[line],
+                        indexes[line]);
+            }
+
+            // bilety i rekordy dziennika powstają pod blokadami, zanim miejsca staną się SOLD: nieudany zapis nic nie
+            // sprzedaje, a rekordy tych samych miejsc trafiają do dziennika w kolejności zmian
+            for (int line = 0; line < lineCount; line++) {
+                Screening screening = orders.get(line).screening();
+                List<Ticket> lineTickets = new ArrayList<>(seats[line].length);
+                for (int i = 0; i < seats[line].length; i++) {
+                    lineTickets.add(new Ticket(screening, seats[line][i], customerOrNull));
+                }
+                tickets.add(lineTickets);
+
+                BookingJournal journal = screening.journal();
+                if (journal != null) {
+                    journalSections.computeIfAbsent(journal, j -> new ArrayList<>()).add(lineTickets);
+                }
+            }
+            // cała partia to jeden rekord dziennika, więc po awarii odtwarza się w całości albo wcale
+            journalSections.forEach((journal, sections) -> sequences.put(journal, journal.appendPurchasedBatch(customerId, sections)));
+
+            for (int line = 0; line < lineCount; line++) {
+                SeatingPlan plan = orders.get(line).screening().seatingPlan;
+                for (int index : indexes[line]) {
+                    plan.markSoldLocked(index);
+                }
+            }
+        } finally {
+            for (int i = lockedPlans - 1; i >= 0; i--) {
+                plans.get(i).unlockSeats(lockedStripes[i]);
+            }
+        }
+
+        List<TicketPurchase> purchases = new ArrayList<>();
+        List<Ticket> allTickets = new ArrayList<>();
+        for (int line = 0; line < lineCount; line++) {
+            List<Ticket> lineTickets = tickets.get(line);
+            for (int i = 0; i < lineTickets.size(); i++) {
+                purchases.add(new TicketPurchase(lineTickets.get(i), prices[line][i]));
+            }
+            orders.get(line).screening().soldTickets.putAllIfAbsent(lineTickets);
+            allTickets.addAll(lineTickets);
+        }
+        if (customerOrNull != null) {
+            customerOrNull.addOwnTickets(allTickets);
+        }
+
+        sequences.forEach(BookingJournal::awaitDurable);
 
         return purchases;
     }
 
+    public void restoreReservation(String ownerKey, long reservedAtMillis, String... seatCodes) {
+        seatingPlan.restoreHold(ownerKey, reservedAtMillis, seatCodes);
+    }
+
+    public void restoreExpiry(String ownerKey, String... seatCodes) {
+        seatingPlan.restoreRelease(ownerKey, seatCodes);
+    }
+
+    public void restoreSoldSeats(String... seatCodes) {
+        seatingPlan.restoreSold(seatCodes);
+    }
+
+    public List<Ticket> restorePurchase(Customer customerOrNull, long[] ticketIds, String[] seatCodes) {
+        if (ticketIds.length != seatCodes.length) {
+            throw new IllegalArgumentException("Ticket ids do not match seat codes");
+        }
+
+        Seat[] seats = new Seat[seatCodes.length];
+        for (int i = 0; i < seats.length; i++) {
+            seats[i] = findSeatByCode(seatCodes[i]);
+        }
+
+        seatingPlan.restoreSold(seatCodes);
+
+        List<Ticket> tickets = new ArrayList<>(seats.length);
+        for (int i = 0; i < seats.length; i++) {
+            this.ticketIds.observe(ticketIds[i]);
+            Ticket ticket = new Ticket(ticketIds[i], this, seats[i], customerOrNull);
+            if (soldTickets.putIfAbsent(ticket) != null) continue;
+
+            tickets.add(ticket);
+            if (customerOrNull != null) {
+                customerOrNull.addOwnTicket(ticket);
+            }
+        }
+        return tickets;
+    }
+
+    public long quoteTotalMinor(String... seatCodes) {
+        if (seatCodes == null || seatCodes.length == 0) {
+            throw new IllegalArgumentException("No seat codes provided");
+        }
+        long total = 0L;
+        for (String code : seatCodes) {
+            total = Math.addExact(total, minorUnitPricing.calculatePriceMinor(findSeatByCode(code), isVip, isThreeD));
+        }
+        return total;
+    }
+
+    public BigDecimal quoteTotal(String... seatCodes) {
+        return MinorUnitPricingPolicy.fromMinorUnits(quoteTotalMinor(seatCodes));
+    }
+
+    public Collection<Ticket> getSoldTickets() {
+        return Collections.unmodifiableList(soldTickets.values());
+    }
+
+    public long nextTicketId() {
+        return ticketIds.next();
+    }
+
+    public List<SeatHold> seatHolds() {
+        return seatingPlan.holdsSnapshot();
+    }
+
     public Ticket findTicketByCode(String ticketCode) {
         if (ticketCode == null) return null;
-        return soldTicketsByCode.get(ticketCode);
+        try {
+            return soldTickets.get(TicketIds.parse(ticketCode));
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    public Ticket findTicketById(long ticketId) {
+        return soldTickets.get(ticketId);
     }
 
     public SeatStatus getSeatStatus(String seatCode) {
@@ -117,12 +522,12 @@ public class Screening {
 
     public List<String> getReservedSeatsFor(Customer customer) {
         Objects.requireNonNull(customer, "customer");
-        return seatingPlan.getReservedSeats(ownerKeyForCustomer(customer));
+        return seatingPlan.getReservedSeats(owners().findCustomer(customer.getId()));
     }
 
     public List<String> getReservedSeatsForToken(String reservationToken) {
         if (reservationToken == null || reservationToken.isBlank()) return List.of();
-        return seatingPlan.getReservedSeats(ownerKeyForGuest(reservationToken));
+        return seatingPlan.getReservedSeats(owners().findGuest(reservationToken));
     }
 
     public void printSummary() {
@@ -135,65 +540,14 @@ public class Screening {
     public void printSeatMap() {
         printSummary();
 
-        Map<String, List<Seat>> seatsByRow = new TreeMap<>();
-        int maxNumber = 0;
-        for (Seat seat : hall.getSeats()) {
-            seatsByRow.computeIfAbsent(seat.row(), r -> new ArrayList<>()).add(seat);
-            maxNumber = Math.max(maxNumber, seat.number());
-        }
-
-        int freeCount = 0;
-        int reservedCount = 0;
-        int soldCount = 0;
-
-        StringBuilder header = new StringBuilder();
-        header.append("     ");
-        for (int n = 1; n <= maxNumber; n++) {
-            header.append(String.format("%3d", n));
-        }
-        System.out.println(header);
-        System.out.println("     " + "-".repeat(Math.max(0, maxNumber * 3)));
-
-        for (Map.Entry<String, List<Seat>> entry : seatsByRow.entrySet()) {
-            List<Seat> rowSeats = new ArrayList<>(entry.getValue());
-            rowSeats.sort(Comparator.comparingInt(Seat::number));
-
-            Map<Integer, Seat> byNumber = new HashMap<>();
-            for (Seat s : rowSeats) {
-                byNumber.put(s.number(), s);
-            }
-
-            StringBuilder line = new StringBuilder();
-            line.append(String.format("%3s |", entry.getKey()));
-
-            for (int n = 1; n <= maxNumber; n++) {
-                Seat seat = byNumber.get(n);
-                if (seat == null) {
-                    line.append("   ");
-                    continue;
-                }
-
-                String code = seat.getCode();
-                SeatStatus status = seatingPlan.getSeatStatus(code);
-
-                char mark;
-                if (status == SeatStatus.SOLD) {
-                    mark = 'X';
-                    soldCount++;
-                } else if (status == SeatStatus.RESERVED) {
-                    mark = 'R';
-                    reservedCount++;
-                } else {
-                    mark = '.';
-                    freeCount++;
-                }
-                line.append(String.format("%3s", mark));
-            }
-            System.out.println(line);
-        }
+        StringBuilder map = new StringBuilder(seatIndex.mapTemplate().length());
+        renderSeatMap(map);
+        System.out.print(map);
 
+        OccupancyCounters occupancy = occupancy();
         System.out.println("Legend: . = FREE | R = RESERVED | X = SOLD");
-        System.out.println("Totals: FREE=" + freeCount + " | RESERVED=" + reservedCount + " | SOLD=" + soldCount);
+        System.out.println("Totals: FREE=" + occupancy.freeSeats() + " | RESERVED=" + occupancy.reservedSeats()
+                + " | SOLD=" + occupancy.soldSeats());
 
         var reservations = seatingPlan.reservationsSnapshot();
         if (!reservations.isEmpty()) {
@@ -204,6 +558,26 @@ public class Screening {
         }
     }
 
+    // mapa miejsc według szablonu sali (bez nagłówka seansu i legendy)
+    public void renderSeatMap(Appendable out) {
+        try {
+            seatIndex.mapTemplate().render(seatingPlan, out);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    public void renderSeatMap(ByteBuffer out) {
+        seatIndex.mapTemplate().render(seatingPlan, out);
+    }
+
+    // stany miejsc po 2 bity w kolejności Hall.getSeats(), zob. SeatMapTemplate.encode
+    public byte[] encodeSeatStatuses() {
+        ByteBuffer out = ByteBuffer.allocate(seatIndex.mapTemplate().encodedLength());
+        seatIndex.mapTemplate().encode(seatingPlan, out);
+        return out.array();
+    }
+
     public void printReservations() {
         printSummary();
         var reservations = seatingPlan.reservationsSnapshot();
@@ -218,24 +592,36 @@ public class Screening {
     }
 
     private Seat findSeatByCode(String code) {
-        for (Seat s : hall.getSeats()) {
-            if (s.getCode().equals(code)) return s;
-        }
-        throw new IllegalArgumentException("No such seat in hall: " + code);
+        Seat seat = seatIndex.findSeat(code);
+        if (seat == null) throw new IllegalArgumentException("No such seat in hall: " + code);
+        return seat;
+    }
+
+    private OwnerHandles owners() {
+        return seatingPlan.owners();
     }
 
-    private String ownerKeyForCustomer(Customer customer) {
-        return "C:" + customer.getId();
+    // seans zmieniony przed dodaniem do sieci zostaje na stercie
+    private SeatStateArena seatStateArena() {
+        Cinema cinema = hall.getCinema();
+        CinemaChain chain = (cinema == null) ? null : cinema.getChain();
+        return (chain == null) ? null : chain.chooseSeatStateArena();
     }
 
-    private String ownerKeyForGuest(String token) {
-        return "G:" + token;
+    private BookingJournal journal() {
+        Cinema cinema = hall.getCinema();
+        CinemaChain chain = (cinema == null) ? null : cinema.getChain();
+        return (chain == null) ? null : chain.getJournal();
     }
 
     private String generateReservationToken() {
         return UUID.randomUUID().toString().replace("-", "").substring(0, 10);
     }
 
+    public String getId() {
+        return id;
+    }
+
     public Movie getMovie() {
         return movie;
     }
@@ -244,7 +630,7 @@ public class Screening {
         return hall;
     }
 
-    public pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.Cinema getCinema() {
+    public Cinema getCinema() {
         return hall.getCinema();
     }
 
@@ -260,11 +646,41 @@ public class Screening {
         return startTime;
     }
 
+    public Duration getReservationTtl() {
+        return seatingPlan.getReservationTtl();
+    }
+
     public PricingPolicy getPricingPolicy() {
         return pricingPolicy;
     }
 
+    public OccupancyCounters occupancy() {
+        return seatingPlan.occupancy();
+    }
+
+    // ustawiane tylko przez Cinema przy dodaniu i usunięciu seansu
+    public void attachOccupancy(OccupancyCounters cinemaOccupancyOrNull) {
+        seatingPlan.attachOccupancy(cinemaOccupancyOrNull);
+    }
+
+    // wołane tylko przez Cinema przy usunięciu seansu: sloty areny wracają do ponownego użycia
+    public void releaseSeatState() {
+        seatingPlan.releaseSeatState();
+    }
+
+    // widok na żywo bez blokad, bez spójności między miejscami; do mapy na ekran i /seats
     public Map<String, SeatStatus> seatStatus() {
         return seatingPlan.seatStatusSnapshot();
     }
+
+    // spójna kopia pod blokadami wszystkich miejsc, z numerem ostatniej ujętej zmiany
+    public SeatStatusSnapshot seatStatusSnapshot() {
+        return seatingPlan.statusSnapshot();
+    }
+
+    // Zmiany miejsc (rezerwacja, sprzedaż, wygaśnięcie, zwolnienie) zamiast ponownego pobierania całej mapy.
+    // Wznowienie: najpierw subskrypcja, potem seatStatusSnapshot(), a ze zmian tylko te z sequence > snapshot.sequence()
+    public Flow.Publisher<SeatChange> seatChanges() {
+        return seatingPlan.changes();
+    }
 }
@@ -0,0 +1,21 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.domain.screening;
+
+import java.util.Objects;
+
+// Zmiana stanu miejsca ze strumienia Screening.seatChanges(). sequence rośnie w obrębie seansu;
+// luka w numeracji oznacza zmiany scalone do najnowszego stanu, bo subskrybent nie nadążał.
+public record SeatChange(long sequence, String seatCode, SeatStatus status, Reason reason) {
+
+    public enum Reason {
+        RESERVED,
+        SOLD,
+        EXPIRED,
+        RELEASED
+    }
+
+    public SeatChange {
+        Objects.requireNonNull(seatCode, "seatCode");
+        Objects.requireNonNull(status, "status");
+        Objects.requireNonNull(reason, "reason");
+    }
+}
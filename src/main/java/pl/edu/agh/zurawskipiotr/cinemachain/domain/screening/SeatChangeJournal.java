@@ -0,0 +1,17 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.domain.screening;
+
+import java.util.List;
+
+// Zapis zmiany miejsc do dziennika. SeatingPlan wywołuje go pod blokadami zmienianych miejsc, po sprawdzeniu,
+// że zmiana się uda, a przed jej wykonaniem: rekordy jednego miejsca trafiają do dziennika w kolejności zmian,
+// a nieudany zapis niczego nie zmienia. Implementacja tylko dopisuje rekord (i tworzy to, co rekord opisuje,
+// np. bilety); na utrwalenie wywołujący czeka już po zwolnieniu blokad.
+@FunctionalInterface
+interface SeatChangeJournal {
+
+    SeatChangeJournal NONE = (seatCodes, atMillis) -> {
+    };
+
+    // atMillis: czas zmiany; dla rezerwacji ten sam, który plan zapisuje przy miejscach
+    void record(List<String> seatCodes, long atMillis);
+}
@@ -0,0 +1,193 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.domain.screening;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Strumień zmian stanu miejsc jednego planu. Każdy subskrybent ma własny bufor z co najwyżej jednym wpisem
+// na miejsce: kolejna zmiana czekającego miejsca nadpisuje wpis i przenosi go na koniec kolejki. Bufor jest więc
+// ograniczony liczbą miejsc, wolny subskrybent dostaje tylko najnowszy stan, a numery przychodzą rosnąco.
+// Zmiany trafiają do buforów pod blokadami miejsc, ale onNext wywołuje executor, nigdy wątek zmieniający miejsce.
+final class SeatChangePublisher implements Flow.Publisher<SeatChange> {
+
+    private static final SeatStatus[] STATUSES = SeatStatus.values();
+    private static final SeatChange.Reason[] REASONS = SeatChange.Reason.values();
+    private static final Subscription[] NO_SUBSCRIPTIONS = new Subscription[0];
+    private static final int NONE = -1;
+
+    private final SeatCodeIndex seatIndex;
+    private final Executor executor;
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile Subscription[] subscriptions = NO_SUBSCRIPTIONS;
+
+    SeatChangePublisher(SeatCodeIndex seatIndex, Executor executor) {
+        this.seatIndex = Objects.requireNonNull(seatIndex, "seatIndex");
+        this.executor = Objects.requireNonNull(executor, "executor");
+    }
+
+    // numer ostatniej zmiany; spójny ze stanem miejsc tylko pod wszystkimi blokadami planu
+    long sequence() {
+        return sequence.get();
+    }
+
+    // wywoływane pod blokadą miejsca, po zmianie stanu
+    void changed(int index, SeatStatus status, SeatChange.Reason reason) {
+        if (subscriptions.length == 0) {
+            sequence.incrementAndGet();
+            return;
+        }
+        // numer i wpisy do buforów pod jednym monitorem, żeby każdy subskrybent widział numery w kolejności
+        synchronized (this) {
+            long current = sequence.incrementAndGet();
+            for (Subscription subscription : subscriptions) {
+                subscription.enqueue(index, current, status, reason);
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super SeatChange> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        Subscription subscription = new Subscription(subscriber);
+        synchronized (this) {
+            Subscription[] current = subscriptions;
+            Subscription[] updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = subscription;
+            subscriptions = updated;
+        }
+        subscriber.onSubscribe(subscription);
+    }
+
+    private synchronized void remove(Subscription subscription) {
+        Subscription[] current = subscriptions;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] != subscription) continue;
+
+            Subscription[] updated = new Subscription[current.length - 1];
+            System.arraycopy(current, 0, updated, 0, i);
+            System.arraycopy(current, i + 1, updated, i, updated.length - i);
+            subscriptions = updated;
+            return;
+        }
+    }
+
+    private final class Subscription implements Flow.Subscription, Runnable {
+
+        private final Flow.Subscriber<? super SeatChange> subscriber;
+        // miejsca czekające na wysłanie jako lista dwukierunkowa po indeksach miejsc (pendingSequence 0 = nie czeka)
+        private final int[] next;
+        private final int[] previous;
+        private final long[] pendingSequence;
+        private final byte[] pendingStatus;
+        private final byte[] pendingReason;
+        private int head = NONE;
+        private int tail = NONE;
+        private long demand;
+        private boolean cancelled;
+        // liczba zgłoszeń do wysyłki; tylko wątek, który podniósł ją z zera, wysyła
+        private final AtomicInteger drainRequests = new AtomicInteger();
+
+        Subscription(Flow.Subscriber<? super SeatChange> subscriber) {
+            this.subscriber = subscriber;
+            int size = seatIndex.size();
+            this.next = new int[size];
+            this.previous = new int[size];
+            this.pendingSequence = new long[size];
+            this.pendingStatus = new byte[size];
+            this.pendingReason = new byte[size];
+        }
+
+        void enqueue(int index, long sequence, SeatStatus status, SeatChange.Reason reason) {
+            synchronized (this) {
+                if (cancelled) return;
+                if (pendingSequence[index] != 0) unlink(index);
+
+                previous[index] = tail;
+                next[index] = NONE;
+                if (tail == NONE) head = index;
+                else next[tail] = index;
+                tail = index;
+
+                pendingSequence[index] = sequence;
+                pendingStatus[index] = (byte) status.ordinal();
+                pendingReason[index] = (byte) reason.ordinal();
+                if (demand == 0) return;
+            }
+            scheduleDrain();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                cancel();
+                subscriber.onError(new IllegalArgumentException("Requested count must be > 0: " + n));
+                return;
+            }
+            synchronized (this) {
+                if (cancelled) return;
+                demand = (demand + n < 0) ? Long.MAX_VALUE : demand + n;
+            }
+            scheduleDrain();
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                if (cancelled) return;
+                cancelled = true;
+                head = NONE;
+                tail = NONE;
+                Arrays.fill(pendingSequence, 0L);
+            }
+            remove(this);
+        }
+
+        private void scheduleDrain() {
+            if (drainRequests.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                SeatChange change;
+                while ((change = poll()) != null) {
+                    try {
+                        subscriber.onNext(change);
+                    } catch (RuntimeException ex) {
+                        cancel();
+                        subscriber.onError(ex);
+                        return;
+                    }
+                }
+                missed = drainRequests.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private synchronized SeatChange poll() {
+            if (cancelled || demand == 0 || head == NONE) return null;
+
+            int index = head;
+            unlink(index);
+            SeatChange change = new SeatChange(pendingSequence[index], seatIndex.codeAt(index),
+                    STATUSES[pendingStatus[index]], REASONS[pendingReason[index]]);
+            pendingSequence[index] = 0L;
+            if (demand != Long.MAX_VALUE) demand--;
+            return change;
+        }
+
+        private void unlink(int index) {
+            int before = previous[index];
+            int after = next[index];
+            if (before == NONE) head = after;
+            else next[before] = after;
+            if (after == NONE) tail = before;
+            else previous[after] = before;
+        }
+    }
+}
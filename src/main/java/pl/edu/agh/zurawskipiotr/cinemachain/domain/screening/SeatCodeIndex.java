@@ -0,0 +1,56 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.domain.screening;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+public final class SeatCodeIndex {
+
+    private static final int EMPTY = 0;
+
+    private final List<String> codes;
+    private final int[] slots;
+    private final int mask;
+
+    public SeatCodeIndex(Collection<String> seatCodes) {
+        this.codes = List.copyOf(Objects.requireNonNull(seatCodes, "seatCodes"));
+
+        int capacity = Integer.highestOneBit(Math.max(2, codes.size()) * 2 - 1) << 1;
+        this.slots = new int[capacity];
+        this.mask = capacity - 1;
+
+        // w slotach trzymamy pozycję + 1, zero oznacza pusty slot; duplikat wskazuje na pierwsze wystąpienie
+        for (int position = 0; position < codes.size(); position++) {
+            String code = codes.get(position);
+            int slot = slotFor(code);
+            if (slots[slot] == EMPTY) slots[slot] = position + 1;
+        }
+    }
+
+    public int indexOf(String seatCode) {
+        if (seatCode == null) return -1;
+        int slot = slotFor(seatCode);
+        return slots[slot] - 1;
+    }
+
+    public String codeAt(int index) {
+        return codes.get(index);
+    }
+
+    public int size() {
+        return codes.size();
+    }
+
+    public List<String> codes() {
+        return codes;
+    }
+
+    private int slotFor(String code) {
+        int h = code.hashCode();
+        int slot = (h ^ (h >>> 16)) & mask;
+        while (slots[slot] != EMPTY && !codes.get(slots[slot] - 1).equals(code)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
@@ -0,0 +1,4 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.domain.screening;
+
+public record SeatHold(String seatCode, String ownerKey, long reservedAtMillis) {
+}
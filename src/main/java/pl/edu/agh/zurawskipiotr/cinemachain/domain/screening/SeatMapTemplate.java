@@ -0,0 +1,148 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.domain.screening;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+
+// Niezmienny szablon tekstowej mapy sali: nagłówek z numerami, rzędy i puste komórki są wyliczone raz na układ sali,
+// a przy renderowaniu wstawiane są tylko znaki stanu miejsc (. = FREE, R = RESERVED, X = SOLD).
+// Stan czytany jest bez blokad, więc mapa pokazuje stan z chwili odczytu każdego miejsca, a nie spójny zrzut.
+public final class SeatMapTemplate {
+
+    private static final char[] GLYPHS = {'.', 'R', 'X'};
+    private static final int STATUS_BITS = 2;
+    private static final int SEATS_PER_BYTE = Byte.SIZE / STATUS_BITS;
+
+    private final String text;
+    private final byte[] bytes;
+    // i-ta komórka: miejsce glyphSeat[i] na pozycji glyphChar[i] w tekście i glyphByte[i] w bajtach UTF-8
+    private final int[] glyphSeat;
+    private final int[] glyphChar;
+    private final int[] glyphByte;
+    private final int seatCount;
+
+    // rows: etykiety rzędów i pozycje miejsc w rzędach (jak w SeatRowLayout), seatNumbers: numer miejsca dla pozycji
+    public SeatMapTemplate(int seatCount, List<String> rowLabels, List<int[]> rows, int[] seatNumbers) {
+        Objects.requireNonNull(rowLabels, "rowLabels");
+        Objects.requireNonNull(rows, "rows");
+        Objects.requireNonNull(seatNumbers, "seatNumbers");
+        if (rowLabels.size() != rows.size()) {
+            throw new IllegalArgumentException("Row labels do not match rows");
+        }
+
+        int maxNumber = 0;
+        int cells = 0;
+        for (int[] row : rows) {
+            for (int position : row) {
+                maxNumber = Math.max(maxNumber, seatNumbers[position]);
+                if (seatNumbers[position] >= 1) cells++;
+            }
+        }
+
+        StringBuilder out = new StringBuilder();
+        out.append("     ");
+        for (int n = 1; n <= maxNumber; n++) {
+            out.append(String.format("%3d", n));
+        }
+        out.append('\n');
+        out.append("     ").append("-".repeat(maxNumber * 3)).append('\n');
+
+        this.glyphSeat = new int[cells];
+        this.glyphChar = new int[cells];
+        int cell = 0;
+        for (int r = 0; r < rows.size(); r++) {
+            out.append(String.format("%3s |", rowLabels.get(r)));
+            int[] byNumber = new int[maxNumber + 1];
+            for (int position : rows.get(r)) {
+                int number = seatNumbers[position];
+                if (number >= 1) byNumber[number] = position + 1;
+            }
+            for (int n = 1; n <= maxNumber; n++) {
+                if (byNumber[n] == 0) {
+                    out.append("   ");
+                    continue;
+                }
+                out.append("  ");
+                glyphSeat[cell] = byNumber[n] - 1;
+                glyphChar[cell] = out.length();
+                out.append(GLYPHS[0]);
+                cell++;
+            }
+            out.append('\n');
+        }
+
+        this.text = out.toString();
+        this.bytes = text.getBytes(StandardCharsets.UTF_8);
+        this.glyphByte = new int[cells];
+        // etykiety rzędów mogą mieć znaki spoza ASCII, więc pozycje w bajtach liczymy osobno
+        int previousChar = 0;
+        int previousByte = 0;
+        for (int i = 0; i < cells; i++) {
+            previousByte += text.substring(previousChar, glyphChar[i]).getBytes(StandardCharsets.UTF_8).length;
+            previousChar = glyphChar[i];
+            glyphByte[i] = previousByte;
+        }
+        this.seatCount = seatCount;
+    }
+
+    public int length() {
+        return text.length();
+    }
+
+    public int byteLength() {
+        return bytes.length;
+    }
+
+    // rozmiar zakodowanych stanów: 2 bity na miejsce, w kolejności Hall.getSeats()
+    public int encodedLength() {
+        return (seatCount + SEATS_PER_BYTE - 1) / SEATS_PER_BYTE;
+    }
+
+    public void render(SeatingPlan plan, Appendable out) throws IOException {
+        checkPlan(plan);
+        int from = 0;
+        for (int i = 0; i < glyphSeat.length; i++) {
+            out.append(text, from, glyphChar[i]).append(GLYPHS[plan.stateOrdinal(glyphSeat[i])]);
+            from = glyphChar[i] + 1;
+        }
+        out.append(text, from, text.length());
+    }
+
+    // cała mapa jako UTF-8 od bieżącej pozycji bufora
+    public void render(SeatingPlan plan, ByteBuffer out) {
+        checkPlan(plan);
+        if (out.remaining() < bytes.length) throw new BufferOverflowException();
+
+        int start = out.position();
+        out.put(bytes);
+        for (int i = 0; i < glyphSeat.length; i++) {
+            out.put(start + glyphByte[i], (byte) GLYPHS[plan.stateOrdinal(glyphSeat[i])]);
+        }
+    }
+
+    // stany jako 2 bity na miejsce (0 = FREE, 1 = RESERVED, 2 = SOLD), pierwsze miejsce w najmłodszych bitach bajtu
+    public void encode(SeatingPlan plan, ByteBuffer out) {
+        checkPlan(plan);
+        if (out.remaining() < encodedLength()) throw new BufferOverflowException();
+
+        int packed = 0;
+        for (int i = 0; i < seatCount; i++) {
+            packed |= plan.stateOrdinal(i) << ((i % SEATS_PER_BYTE) * STATUS_BITS);
+            if (i % SEATS_PER_BYTE == SEATS_PER_BYTE - 1) {
+                out.put((byte) packed);
+                packed = 0;
+            }
+        }
+        if (seatCount % SEATS_PER_BYTE != 0) out.put((byte) packed);
+    }
+
+    private void checkPlan(SeatingPlan plan) {
+        Objects.requireNonNull(plan, "plan");
+        if (plan.seatCount() != seatCount) {
+            throw new IllegalArgumentException("Seating plan does not match the hall layout");
+        }
+    }
+}
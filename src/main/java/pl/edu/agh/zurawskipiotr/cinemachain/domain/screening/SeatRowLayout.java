@@ -0,0 +1,184 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.domain.screening;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+// Niezmienny układ rzędów sali na potrzeby wyszukiwania sąsiednich wolnych miejsc.
+// Każdy rząd to ciąg bitów (miejsca według numeru), zapisany w kolejnych słowach long; wszystkie
+// maski (miejsca istniejące, sąsiedztwo, kategorie) mają ten sam układ słów co mapa wolnych miejsc planu.
+public final class SeatRowLayout {
+
+    private final int[] wordOffset;
+    private final int[] rowLength;
+    private final int[] rowOfSeat;
+    private final int[] bitOfSeat;
+    private final int[][] seatsInRow;
+
+    private final long[] allSeats;
+    // bit i: miejsce i oraz i + 1 w rzędzie mają kolejne numery (nie ma między nimi przerwy)
+    private final long[] adjacency;
+    private final long[][] groupSeats;
+    // najdłuższy ciąg sąsiednich miejsc w sali i w każdej grupie; dłuższej grupy findBestRun nigdy nie znajdzie
+    private final int longestRun;
+    private final int[] longestGroupRun;
+
+    // rzędy od najlepszego: najbliżej rzędu położonego w 2/3 głębokości sali
+    private final int[] rowsByPreference;
+    private final int[] rowDistance;
+
+    // rows: pozycje miejsc w rzędach (od przodu sali), w rzędzie rosnąco po numerze
+    public SeatRowLayout(int seatCount, List<int[]> rows, int[] seatNumbers, byte[] groups, int groupCount) {
+        Objects.requireNonNull(rows, "rows");
+        Objects.requireNonNull(seatNumbers, "seatNumbers");
+        Objects.requireNonNull(groups, "groups");
+
+        int rowCount = rows.size();
+        this.wordOffset = new int[rowCount + 1];
+        this.rowLength = new int[rowCount];
+        this.seatsInRow = new int[rowCount][];
+        for (int r = 0; r < rowCount; r++) {
+            seatsInRow[r] = rows.get(r).clone();
+            rowLength[r] = seatsInRow[r].length;
+            wordOffset[r + 1] = wordOffset[r] + (rowLength[r] + Long.SIZE - 1) / Long.SIZE;
+        }
+
+        int words = wordOffset[rowCount];
+        this.rowOfSeat = new int[seatCount];
+        this.bitOfSeat = new int[seatCount];
+        Arrays.fill(rowOfSeat, -1);
+        this.allSeats = new long[words];
+        this.adjacency = new long[words];
+        this.groupSeats = new long[groupCount][words];
+        this.longestGroupRun = new int[groupCount];
+        int longest = 0;
+
+        for (int r = 0; r < rowCount; r++) {
+            int[] row = seatsInRow[r];
+            int run = 0;
+            int groupRun = 0;
+            for (int bit = 0; bit < row.length; bit++) {
+                int position = row[bit];
+                boolean afterNeighbour = bit > 0 && seatNumbers[row[bit - 1]] + 1 == seatNumbers[position];
+                run = afterNeighbour ? run + 1 : 1;
+                groupRun = (afterNeighbour && groups[row[bit - 1]] == groups[position]) ? groupRun + 1 : 1;
+                longest = Math.max(longest, run);
+                longestGroupRun[groups[position]] = Math.max(longestGroupRun[groups[position]], groupRun);
+
+                int word = wordOffset[r] + (bit >>> 6);
+                long mask = 1L << bit;
+
+                rowOfSeat[position] = r;
+                bitOfSeat[position] = bit;
+                allSeats[word] |= mask;
+                groupSeats[groups[position]][word] |= mask;
+                if (bit + 1 < row.length && seatNumbers[row[bit + 1]] == seatNumbers[position] + 1) {
+                    adjacency[word] |= mask;
+                }
+            }
+        }
+
+        this.longestRun = longest;
+
+        int idealRow = (rowCount == 0) ? 0 : Math.round((rowCount - 1) * 2f / 3f);
+        this.rowDistance = new int[rowCount];
+        Integer[] order = new Integer[rowCount];
+        for (int r = 0; r < rowCount; r++) {
+            rowDistance[r] = Math.abs(r - idealRow);
+            order[r] = r;
+        }
+        // przy równej odległości dalszy rząd (dalej od ekranu) jest lepszy
+        Arrays.sort(order, (a, b) -> rowDistance[a] != rowDistance[b] ? Integer.compare(rowDistance[a], rowDistance[b]) : Integer.compare(b, a));
+        this.rowsByPreference = new int[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            rowsByPreference[i] = order[i];
+        }
+    }
+
+    public int rowCount() {
+        return rowLength.length;
+    }
+
+    public int wordCount() {
+        return wordOffset[rowLength.length];
+    }
+
+    // największa grupa, jaką findBestRun może kiedykolwiek znaleźć (group = -1 dla dowolnej kategorii)
+    int longestRun(int group) {
+        return Math.min(Long.SIZE, (group < 0) ? longestRun : longestGroupRun[group]);
+    }
+
+    long[] allSeats() {
+        return allSeats;
+    }
+
+    // słowo mapy wolnych miejsc, w którym leży miejsce, albo -1 dla miejsca spoza układu (np. duplikat kodu)
+    int wordOf(int position) {
+        int row = rowOfSeat[position];
+        return (row < 0) ? -1 : wordOffset[row] + (bitOfSeat[position] >>> 6);
+    }
+
+    long maskOf(int position) {
+        return 1L << bitOfSeat[position];
+    }
+
+    // najlepszy ciąg count sąsiednich miejsc wolnych w free (i z grupy group, jeśli group >= 0) albo null.
+    // Wynik: rząd lepszy o jeden kosztuje tyle co przesunięcie środka ciągu o ROW_WEIGHT miejsc od środka rzędu.
+    int[] findBestRun(long[] free, int count, int group) {
+        if (count <= 0 || count > Long.SIZE) return null;
+        long[] groupMask = (group < 0) ? null : groupSeats[group];
+
+        final int ROW_WEIGHT = 2;
+        long bestScore = Long.MAX_VALUE;
+        int bestRow = -1;
+        int bestStart = -1;
+
+        for (int r : rowsByPreference) {
+            // wyniki liczone w połówkach miejsc, żeby środek ciągu parzystej długości był liczbą całkowitą
+            long rowScore = 2L * ROW_WEIGHT * rowDistance[r];
+            if (rowScore > bestScore) break;
+
+            int length = rowLength[r];
+            if (length < count) continue;
+
+            for (int base = 0; base < length; base += Long.SIZE) {
+                long starts = window(free, groupMask, r, base);
+                for (int j = 1; j < count && starts != 0; j++) {
+                    starts &= window(free, groupMask, r, base + j) & window(adjacency, null, r, base + j - 1);
+                }
+
+                for (long s = starts; s != 0; s &= s - 1) {
+                    int start = base + Long.numberOfTrailingZeros(s);
+                    long score = rowScore + Math.abs(2L * start + count - 1 - (length - 1));
+                    if (score < bestScore) {
+                        bestScore = score;
+                        bestRow = r;
+                        bestStart = start;
+                    }
+                }
+            }
+        }
+
+        if (bestRow < 0) return null;
+        return Arrays.copyOfRange(seatsInRow[bestRow], bestStart, bestStart + count);
+    }
+
+    // 64 bity rzędu r począwszy od bitu offset (poza rzędem zera)
+    private long window(long[] words, long[] mask, int r, int offset) {
+        int first = wordOffset[r];
+        int end = wordOffset[r + 1];
+        int index = first + (offset >>> 6);
+        if (index >= end) return 0L;
+
+        int shift = offset & 63;
+        long value = word(words, mask, index) >>> shift;
+        if (shift != 0 && index + 1 < end) {
+            value |= word(words, mask, index + 1) << (Long.SIZE - shift);
+        }
+        return value;
+    }
+
+    private static long word(long[] words, long[] mask, int index) {
+        return (mask == null) ? words[index] : words[index] & mask[index];
+    }
+}
@@ -0,0 +1,131 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.domain.screening;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+// Stan miejsc wszystkich seansów sieci poza stertą (CinemaChain.attachSeatStateArena). Każde miejsce to stały slot
+// 16 bajtów: status (bajt 0), właściciel + 1 (bajty 4-7, 0 = brak), czas rezerwacji (bajty 8-15). Plan dostaje
+// ciągły zakres slotów przy pierwszej zmianie miejsca, więc seanse, których nikt nie dotknął, nie zajmują nic,
+// a rok opublikowanych seansów to kilka dużych segmentów zamiast milionów tablic dla GC.
+// Seans usunięty z kina oddaje swój zakres (SeatingPlan.releaseSeatState) na listę wolnych zakresów według
+// liczby slotów; kolejny plan tej samej wielkości (zwykle ta sama sala) dostaje go zamiast nowych bajtów.
+// Po close() żaden plan z tej areny nie może być już używany.
+public final class SeatStateArena implements AutoCloseable {
+
+    static final long SLOT_BYTES = 16;
+    private static final long STATE_OFFSET = 0;
+    private static final long OWNER_OFFSET = 4;
+    private static final long HELD_AT_OFFSET = 8;
+    private static final long DEFAULT_CHUNK_BYTES = 16L << 20;
+
+    private final Arena arena = Arena.ofShared();
+    private final long chunkBytes;
+    private MemorySegment chunk = MemorySegment.NULL;
+    private long chunkUsed;
+    private long reservedBytes;
+    private long allocatedBytes;
+    private final Map<Long, ArrayDeque<MemorySegment>> freeRanges = new HashMap<>();
+
+    public SeatStateArena() {
+        this(DEFAULT_CHUNK_BYTES);
+    }
+
+    public SeatStateArena(long chunkBytes) {
+        if (chunkBytes < SLOT_BYTES) {
+            throw new IllegalArgumentException("Chunk must hold at least one seat slot");
+        }
+        this.chunkBytes = chunkBytes - chunkBytes % SLOT_BYTES;
+    }
+
+    // bajty przydzielone planom
+    public synchronized long allocatedBytes() {
+        return allocatedBytes;
+    }
+
+    // bajty zarezerwowane w segmentach
+    public synchronized long reservedBytes() {
+        return reservedBytes;
+    }
+
+    @Override
+    public synchronized void close() {
+        arena.close();
+    }
+
+    synchronized SeatStateStore allocate(int seatCount) {
+        long bytes = Math.max(1, seatCount) * SLOT_BYTES;
+        ArrayDeque<MemorySegment> free = freeRanges.get(bytes);
+        if (free != null && !free.isEmpty()) {
+            MemorySegment slots = free.poll();
+            slots.fill((byte) 0);
+            allocatedBytes += bytes;
+            return new OffHeapStore(slots);
+        }
+        if (chunk.byteSize() - chunkUsed < bytes) {
+            // sala większa niż segment dostaje własny segment
+            long size = Math.max(chunkBytes, bytes);
+            chunk = arena.allocate(size, SLOT_BYTES);
+            chunkUsed = 0;
+            reservedBytes += size;
+        }
+        // pamięć z Arena.allocate jest wyzerowana: wszystkie miejsca FREE, bez właściciela
+        MemorySegment slots = chunk.asSlice(chunkUsed, bytes);
+        chunkUsed += bytes;
+        allocatedBytes += bytes;
+        return new OffHeapStore(slots);
+    }
+
+    private synchronized void release(MemorySegment slots) {
+        if (!arena.scope().isAlive()) return;
+        freeRanges.computeIfAbsent(slots.byteSize(), size -> new ArrayDeque<>()).push(slots);
+        allocatedBytes -= slots.byteSize();
+    }
+
+    private final class OffHeapStore implements SeatStateStore {
+
+        private final MemorySegment slots;
+
+        OffHeapStore(MemorySegment slots) {
+            this.slots = slots;
+        }
+
+        @Override
+        public byte state(int index) {
+            return slots.get(ValueLayout.JAVA_BYTE, index * SLOT_BYTES + STATE_OFFSET);
+        }
+
+        @Override
+        public void setState(int index, byte state) {
+            slots.set(ValueLayout.JAVA_BYTE, index * SLOT_BYTES + STATE_OFFSET, state);
+        }
+
+        @Override
+        public int owner(int index) {
+            return slots.get(ValueLayout.JAVA_INT, index * SLOT_BYTES + OWNER_OFFSET) - 1;
+        }
+
+        @Override
+        public void setOwner(int index, int owner) {
+            slots.set(ValueLayout.JAVA_INT, index * SLOT_BYTES + OWNER_OFFSET, owner + 1);
+        }
+
+        @Override
+        public long heldAtMillis(int index) {
+            return slots.get(ValueLayout.JAVA_LONG, index * SLOT_BYTES + HELD_AT_OFFSET);
+        }
+
+        @Override
+        public void setHeldAtMillis(int index, long heldAtMillis) {
+            slots.set(ValueLayout.JAVA_LONG, index * SLOT_BYTES + HELD_AT_OFFSET, heldAtMillis);
+        }
+
+        @Override
+        public void release() {
+            SeatStateArena.this.release(slots);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.domain.screening;
+
+// Stan miejsc jednego planu: status (ordinal SeatStatus), uchwyt właściciela i czas rezerwacji każdego miejsca.
+// Zapisy i spójne odczyty pod blokadą miejsca w SeatingPlan; status czytany też bez blokad (mapy miejsc).
+interface SeatStateStore {
+
+    byte state(int index);
+
+    void setState(int index, byte state);
+
+    // -1, gdy miejsce nie jest zarezerwowane
+    int owner(int index);
+
+    void setOwner(int index, int owner);
+
+    long heldAtMillis(int index);
+
+    void setHeldAtMillis(int index, long heldAtMillis);
+
+    // oddaje pamięć właścicielowi (arenie); po wywołaniu magazyn nie może być już czytany ani zmieniany
+    default void release() {
+    }
+}
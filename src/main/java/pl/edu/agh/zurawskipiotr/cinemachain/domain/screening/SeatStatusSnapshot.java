@@ -0,0 +1,12 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.domain.screening;
+
+import java.util.Map;
+import java.util.Objects;
+
+// Stan wszystkich miejsc wraz z numerem ostatniej ujętej zmiany: klient nakłada na niego zmiany ze strumienia
+// z sequence większym niż ten numer.
+public record SeatStatusSnapshot(long sequence, Map<String, SeatStatus> seats) {
+    public SeatStatusSnapshot {
+        Objects.requireNonNull(seats, "seats");
+    }
+}
@@ -0,0 +1,86 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.domain.screening;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+// Kolejka oczekujących na miejsca na seans (FIFO). Każde zwolnienie miejsc (wygaśnięcie, anulowanie) wywołuje
+// offer(): oczekujący po kolei dostają najlepsze wolne miejsca jako nową rezerwację. Kto się nie mieści, czeka dalej,
+// a następni w kolejce mogą zająć mniejszy blok. Oczekujący z anulowanym future znika przy najbliższym offer().
+final class SeatWaitlist {
+
+    interface Allocator {
+        long freeSeats();
+
+        // przydziela miejsca oczekującemu (rezerwacja w planie); null, gdy nic nie pasuje
+        Allocation allocate(Waiter<?> waiter);
+    }
+
+    static final class Waiter<T> {
+        final int ownerId;
+        final int partySize;
+        final int group;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        private final Function<List<String>, T> toResult;
+
+        Waiter(int ownerId, int partySize, int group, Function<List<String>, T> toResult) {
+            this.ownerId = ownerId;
+            this.partySize = partySize;
+            this.group = group;
+            this.toResult = toResult;
+        }
+
+        // false, jeśli oczekujący zrezygnował, zanim przydział został potwierdzony
+        boolean complete(List<String> seatCodes) {
+            return future.complete(toResult.apply(seatCodes));
+        }
+    }
+
+    // durable kończy się po utrwaleniu rezerwacji w dzienniku
+    record Allocation(Waiter<?> waiter, List<String> seatCodes, CompletableFuture<Void> durable) {
+    }
+
+    private final Deque<Waiter<?>> waiters = new ArrayDeque<>();
+    // czytane bez monitora, żeby zwolnienie miejsc na seans bez kolejki nie czekało na blokadę
+    private volatile int size;
+
+    synchronized void add(Waiter<?> waiter) {
+        waiters.addLast(waiter);
+        size = waiters.size();
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Przydziały w kolejności kolejki. Future kończy wywołujący, bo rezerwacja musi najpierw trafić do dziennika.
+    // Alokator bierze blokady miejsc pod monitorem kolejki; w drugą stronę nikt nie blokuje, więc bez zakleszczeń
+    synchronized List<Allocation> offer(Allocator allocator) {
+        if (waiters.isEmpty()) return List.of();
+
+        List<Allocation> allocations = new ArrayList<>();
+        for (Iterator<Waiter<?>> it = waiters.iterator(); it.hasNext(); ) {
+            Waiter<?> waiter = it.next();
+            if (waiter.future.isDone()) {
+                it.remove();
+                continue;
+            }
+            // przy pełnej sali nie przeszukujemy jej dla każdego oczekującego
+            long free = allocator.freeSeats();
+            if (free == 0) break;
+            if (waiter.partySize > free) continue;
+
+            Allocation allocation = allocator.allocate(waiter);
+            if (allocation == null) continue;
+
+            it.remove();
+            allocations.add(allocation);
+        }
+        size = waiters.size();
+        return allocations;
+    }
+}
@@ -2,165 +2,826 @@ package pl.edu.agh.zurawskipiotr.cinemachain.domain.screening;
 
 import pl.edu.agh.zurawskipiotr.cinemachain.domain.booking.Reservation;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntToLongFunction;
+import java.util.function.Supplier;
 
 public class SeatingPlan {
 
-    private final Map<String, SeatStatus> seatStatus = new HashMap<>();
+    private static final SeatStatus[] STATUSES = SeatStatus.values();
+    private static final byte FREE = (byte) SeatStatus.FREE.ordinal();
+    private static final byte RESERVED = (byte) SeatStatus.RESERVED.ordinal();
+    private static final byte SOLD = (byte) SeatStatus.SOLD.ordinal();
+    private static final int NO_OWNER = -1;
+    private static final int MAX_STRIPES = Long.SIZE;
+    private static final int BEST_AVAILABLE_ATTEMPTS = 8;
+    private static final VarHandle FREE_WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final AtomicLong NEXT_ORDINAL = new AtomicLong();
+
+    // stan miejsc (status, właściciel, czas rezerwacji) indeksowany pozycją miejsca w sali; na stercie
+    // albo w SeatStateArena sieci, jeśli jest ustawiona w chwili pierwszej zmiany
+    private final SeatCodeIndex seatIndex;
+    private final int seatCount;
+    private final Supplier<SeatStateArena> seatStateArena;
+    private SeatStateStore seats;
+    // ustawiane pod monitorem planu: plan oddał sloty areny i odtąd trzyma stan tylko na stercie
+    private boolean seatStateReleased;
+
+    // wolne miejsca jako bity rzędów (układ z SeatRowLayout); słowo obejmuje miejsca z różnych pasów blokad,
+    // więc bity zmieniamy atomowo, a wyszukiwanie czyta je bez blokad i potwierdza wynik pod blokadami
+    private final SeatRowLayout rowLayout;
+    private long[] freeSeats;
+
+    // miejsce i chroni blokada stripes[i & (stripeCount - 1)]; operacje wielomiejscowe
+    // biorą blokady rosnąco, więc są atomowe (wszystkie miejsca albo żadne) i wolne od zakleszczeń.
+    // Blokady i magazyn stanu powstają przy pierwszej zmianie: większości seansów z tygodnia nikt
+    // nie dotyka, a dopóki stripes == null, wszystkie miejsca są wolne
+    private final int stripeCount;
+    private volatile ReentrantLock[] stripes;
+
+    // kto blokuje kilka planów naraz (zakup zbiorczy), bierze je rosnąco według ordinal
+    final long ordinal = NEXT_ORDINAL.getAndIncrement();
+
+    // właściciele jako uchwyty int: magazyn stanu i autoryzacja zakupu porównują liczby, nie klucze tekstowe
+    private final OwnerHandles owners = new OwnerHandles();
+
+    // miejsca trzymane przez każdego właściciela, zmieniane w miejscu pod blokadami miejsc;
+    // rekordy Reservation powstają dopiero przy odczycie
+    private final Map<Integer, OwnerSeats> reservationsByOwner = new ConcurrentHashMap<>();
 
-    private final Map<String, String> reservedByOwnerKey = new HashMap<>();
-
-    private final Map<String, Reservation> reservationsByOwnerKey = new HashMap<>();
+    private final Duration reservationTtl;
+    private final Supplier<ReservationExpiryScheduler> expiryScheduler;
 
-    private final Map<String, LocalDateTime> reservedAtBySeatCode = new HashMap<>();
+    private volatile SeatingPlanListener listener;
 
-    private final Duration reservationTtl;
+    private final OccupancyCounters occupancy;
+    private final SeatChangePublisher changes;
+    private final Map<String, SeatStatus> statusView;
+    private volatile IntToLongFunction soldValueMinor = index -> 0L;
 
     public SeatingPlan(Collection<String> seatCodes, Duration reservationTtl) {
-        Objects.requireNonNull(seatCodes, "seatCodes");
+        this(new SeatCodeIndex(Objects.requireNonNull(seatCodes, "seatCodes")), reservationTtl);
+    }
+
+    public SeatingPlan(SeatCodeIndex seatIndex, Duration reservationTtl) {
+        this(seatIndex, reservationTtl, ReservationExpiryScheduler::shared);
+    }
+
+    public SeatingPlan(SeatCodeIndex seatIndex, Duration reservationTtl, Supplier<ReservationExpiryScheduler> expiryScheduler) {
+        this(seatIndex, null, reservationTtl, expiryScheduler);
+    }
+
+    public SeatingPlan(SeatCodeIndex seatIndex, SeatRowLayout rowLayoutOrNull, Duration reservationTtl,
+                       Supplier<ReservationExpiryScheduler> expiryScheduler) {
+        this(seatIndex, rowLayoutOrNull, reservationTtl, expiryScheduler, () -> null);
+    }
+
+    // seatStateArena: arena dla stanu miejsc poza stertą albo null (stan na stercie), pytana przy pierwszej zmianie
+    public SeatingPlan(SeatCodeIndex seatIndex, SeatRowLayout rowLayoutOrNull, Duration reservationTtl,
+                       Supplier<ReservationExpiryScheduler> expiryScheduler, Supplier<SeatStateArena> seatStateArena) {
+        this.seatIndex = Objects.requireNonNull(seatIndex, "seatIndex");
+        this.seatStateArena = Objects.requireNonNull(seatStateArena, "seatStateArena");
+        this.rowLayout = rowLayoutOrNull;
         this.reservationTtl = Objects.requireNonNull(reservationTtl, "reservationTtl");
-        for (String code : seatCodes) {
-            seatStatus.put(code, SeatStatus.FREE);
+        this.expiryScheduler = Objects.requireNonNull(expiryScheduler, "expiryScheduler");
+
+        int size = seatIndex.size();
+        this.seatCount = size;
+        this.occupancy = new OccupancyCounters(size);
+        this.changes = new SeatChangePublisher(seatIndex, ForkJoinPool.commonPool());
+        this.stripeCount = Integer.highestOneBit(Math.max(1, Math.min(MAX_STRIPES, size)));
+        this.statusView = new StatusView();
+    }
+
+    // grupa, której nie zmieści żaden ciąg sąsiednich miejsc, nigdy nie dostanie miejsc (także z kolejki oczekujących)
+    void checkPartySize(int partySize, int group) {
+        if (rowLayout == null) {
+            throw new IllegalStateException("Seating plan has no row layout");
+        }
+        if (partySize <= 0) {
+            throw new IllegalArgumentException("Party size must be > 0");
+        }
+        if (partySize > rowLayout.longestRun(group)) {
+            throw new IllegalArgumentException("Party size exceeds the longest run of adjacent seats: " + partySize);
         }
     }
 
     public void reserve(String ownerKey, String... seatCodes) {
-        cleanupExpiredReservations(LocalDateTime.now());
+        reserve(owners.forKey(Objects.requireNonNull(ownerKey, "ownerKey")), SeatChangeJournal.NONE, seatCodes);
+    }
+
+    void reserve(int ownerId, SeatChangeJournal journal, String... seatCodes) {
         validateSeatCodesProvided(seatCodes);
+        reserveIndexes(ownerId, resolveIndexes(seatCodes), seatCodes, true, journal);
+    }
 
-        for (String code : seatCodes) {
-            SeatStatus status = seatStatus.get(code);
-            if (status == null) throw new IllegalArgumentException("No such seat in this hall: " + code);
-            if (status != SeatStatus.FREE) {
-                throw new IllegalStateException("Seat not available: " + code + " (status=" + status + ")");
-            }
+    // rezerwuje najlepszy ciąg partySize sąsiednich wolnych miejsc (group = ordinal kategorii albo -1 dla dowolnej);
+    // pusta lista, gdy takiego ciągu teraz nie ma; IllegalArgumentException, gdy sala nie ma tak długiego ciągu
+    public List<String> reserveBestAvailable(String ownerKey, int partySize, int group) {
+        return reserveBestAvailable(owners.forKey(Objects.requireNonNull(ownerKey, "ownerKey")), partySize, group,
+                SeatChangeJournal.NONE);
+    }
+
+    List<String> reserveBestAvailable(int ownerId, int partySize, int group, SeatChangeJournal journal) {
+        checkPartySize(partySize, group);
+
+        // zwykle wystarcza odczyt bez blokad; jeśli ktoś nas ciągle wyprzedza, szukamy pod wszystkimi blokadami
+        for (int attempt = 0; attempt < BEST_AVAILABLE_ATTEMPTS; attempt++) {
+            long[] free = (stripes == null) ? rowLayout.allSeats() : freeSeats;
+            int[] run = rowLayout.findBestRun(free, partySize, group);
+            if (run == null) return List.of();
+
+            String[] codes = codesOf(run);
+            if (reserveIndexes(ownerId, run, codes, false, journal)) return List.of(codes);
         }
 
-        LocalDateTime reservedAt = LocalDateTime.now();
-        for (String code : seatCodes) {
-            seatStatus.put(code, SeatStatus.RESERVED);
-            reservedByOwnerKey.put(code, ownerKey);
-            reservedAtBySeatCode.put(code, reservedAt);
+        long locked = lockAllSeats();
+        try {
+            int[] run = rowLayout.findBestRun(freeSeats, partySize, group);
+            if (run == null) return List.of();
+
+            String[] codes = codesOf(run);
+            reserveIndexes(ownerId, run, codes, true, journal);
+            return List.of(codes);
+        } finally {
+            unlockSeats(locked);
+        }
+    }
+
+    private boolean reserveIndexes(int ownerId, int[] indexes, String[] seatCodes, boolean failIfTaken,
+                                   SeatChangeJournal journal) {
+        long nowMillis = System.currentTimeMillis();
+
+        long locked = lockSeats(indexes);
+        try {
+            for (int i = 0; i < indexes.length; i++) {
+                byte state = seats.state(indexes[i]);
+                if (state != FREE) {
+                    if (!failIfTaken) return false;
+                    throw new IllegalStateException("Seat not available: " + seatCodes[i] + " (status=" + STATUSES[state] + ")");
+                }
+            }
+
+            journal.record(List.of(seatCodes), nowMillis);
+            for (int index : indexes) {
+                setState(index, RESERVED, SeatChange.Reason.RESERVED);
+                seats.setOwner(index, ownerId);
+                seats.setHeldAtMillis(index, nowMillis);
+            }
+
+            reservationsByOwner.compute(ownerId, (id, current) -> {
+                OwnerSeats held = (current == null) ? new OwnerSeats(nowMillis) : current;
+                held.add(indexes, indexes.length, nowMillis);
+                return held;
+            });
+        } finally {
+            unlockSeats(locked);
         }
 
-        Reservation current = reservationsByOwnerKey.get(ownerKey);
-        List<String> merged = new ArrayList<>();
-        if (current != null) merged.addAll(current.seatCodes());
-        merged.addAll(Arrays.asList(seatCodes));
-        reservationsByOwnerKey.put(ownerKey, new Reservation(ownerKey, List.copyOf(merged), reservedAt));
+        if (!reservationTtl.isZero() && !reservationTtl.isNegative()) {
+            expiryScheduler.get().schedule(this, indexes, ownerId, nowMillis, reservationTtl);
+        }
+        return true;
     }
 
     public void authorizePurchase(String customerOwnerKey, String guestOwnerKey, boolean isGuestWithoutToken, String... seatCodes) {
-        cleanupExpiredReservations(LocalDateTime.now());
+        authorizePurchase(owners.find(customerOwnerKey), owners.find(guestOwnerKey), isGuestWithoutToken, seatCodes);
+    }
+
+    // customerOwnerId/guestOwnerId: uchwyt z owners() albo OwnerHandles.NONE, gdy kupujący nie występuje w tej roli
+    void authorizePurchase(int customerOwnerId, int guestOwnerId, boolean isGuestWithoutToken, String... seatCodes) {
         validateSeatCodesProvided(seatCodes);
 
+        int[] indexes = resolveIndexes(seatCodes);
+        long locked = lockSeats(indexes);
+        try {
+            checkPurchasable(customerOwnerId, guestOwnerId, isGuestWithoutToken, seatCodes, indexes);
+        } finally {
+            unlockSeats(locked);
+        }
+    }
+
+    public void sell(String customerOwnerKey, String guestOwnerKey, boolean isGuestWithoutToken, String... seatCodes) {
+        sell(owners.find(customerOwnerKey), owners.find(guestOwnerKey), isGuestWithoutToken, SeatChangeJournal.NONE, seatCodes);
+    }
+
+    void sell(int customerOwnerId, int guestOwnerId, boolean isGuestWithoutToken, SeatChangeJournal journal,
+              String... seatCodes) {
+        validateSeatCodesProvided(seatCodes);
+
+        int[] indexes = resolveIndexes(seatCodes);
+        long locked = lockSeats(indexes);
+        try {
+            checkPurchasable(customerOwnerId, guestOwnerId, isGuestWithoutToken, seatCodes, indexes);
+            journal.record(List.of(seatCodes), System.currentTimeMillis());
+            for (int index : indexes) {
+                markSoldLocked(index);
+            }
+        } finally {
+            unlockSeats(locked);
+        }
+    }
+
+    public void markSold(String seatCode) {
+        int index = indexOrThrow(seatCode, "No such seat in this hall: ");
+        ReentrantLock lock = stripeFor(index);
+        lock.lock();
+        try {
+            markSoldLocked(index);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public SeatStatus getSeatStatus(String seatCode) {
+        int index = indexOrThrow(seatCode, "No such seat: ");
+        if (stripes == null) return SeatStatus.FREE;
+        ReentrantLock lock = stripeFor(index);
+        lock.lock();
+        try {
+            return STATUSES[seats.state(index)];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public SeatStatus getSeatStatus(int seatIndex) {
+        Objects.checkIndex(seatIndex, seatCount);
+        if (stripes == null) return SeatStatus.FREE;
+        ReentrantLock lock = stripeFor(seatIndex);
+        lock.lock();
+        try {
+            return STATUSES[seats.state(seatIndex)];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // kody w kolejności miejsc w sali
+    public List<String> getReservedSeats(String ownerKey) {
+        return getReservedSeats(owners.find(ownerKey));
+    }
+
+    List<String> getReservedSeats(int ownerId) {
+        OwnerSeats held = (ownerId < 0) ? null : reservationsByOwner.get(ownerId);
+        return (held == null) ? List.of() : held.seatCodes(seatIndex);
+    }
+
+    public void removeSeatCodesFromReservations(String ownerKey, String... seatCodes) {
+        if (ownerKey == null) return;
+
+        int[] indexes = new int[seatCodes.length];
+        int count = 0;
         for (String code : seatCodes) {
-            SeatStatus status = seatStatus.get(code);
-            if (status == null) throw new IllegalArgumentException("No such seat in this hall: " + code);
+            int index = seatIndex.indexOf(code);
+            if (index >= 0) indexes[count++] = index;
+        }
+        removeFromReservation(owners.find(ownerKey), indexes, count);
+    }
+
+    private void removeFromReservation(int ownerId, int[] indexes, int count) {
+        if (ownerId < 0 || count == 0) return;
+
+        reservationsByOwner.computeIfPresent(ownerId, (id, held) -> held.remove(indexes, count) ? held : null);
+    }
+
+    // widok na żywo bez blokad (jak mapy miejsc): każdy status aktualny w chwili odczytu, ale bez spójności
+    // między miejscami; spójny stan daje statusSnapshot()
+    public Map<String, SeatStatus> seatStatusSnapshot() {
+        return statusView;
+    }
+
+    // stan miejsc i numer ostatniej zmiany w nim ujętej, odczytane pod wszystkimi blokadami
+    public SeatStatusSnapshot statusSnapshot() {
+        Map<String, SeatStatus> snapshot = new LinkedHashMap<>();
+        if (stripes == null) {
+            for (int i = 0; i < seatCount; i++) {
+                snapshot.putIfAbsent(seatIndex.codeAt(i), SeatStatus.FREE);
+            }
+            return new SeatStatusSnapshot(changes.sequence(), Collections.unmodifiableMap(snapshot));
+        }
+        long sequence;
+        long locked = lockAllSeats();
+        try {
+            for (int i = 0; i < seatCount; i++) {
+                snapshot.putIfAbsent(seatIndex.codeAt(i), STATUSES[seats.state(i)]);
+            }
+            sequence = changes.sequence();
+        } finally {
+            unlockSeats(locked);
+        }
+        return new SeatStatusSnapshot(sequence, Collections.unmodifiableMap(snapshot));
+    }
+
+    // zmiany stanu miejsc od chwili subskrypcji, zob. SeatChangePublisher
+    public Flow.Publisher<SeatChange> changes() {
+        return changes;
+    }
+
+    public Collection<Reservation> reservationsSnapshot() {
+        List<Reservation> snapshot = new ArrayList<>(reservationsByOwner.size());
+        reservationsByOwner.forEach((ownerId, held) -> {
+            Reservation reservation = held.toReservation(owners.keyOf(ownerId), seatIndex);
+            if (reservation != null) snapshot.add(reservation);
+        });
+        return snapshot;
+    }
+
+    public List<SeatHold> holdsSnapshot() {
+        List<SeatHold> holds = new ArrayList<>();
+        if (stripes == null) return holds;
+        long locked = lockAllSeats();
+        try {
+            for (int i = 0; i < seatCount; i++) {
+                if (seats.state(i) != RESERVED) continue;
+                holds.add(new SeatHold(seatIndex.codeAt(i), owners.keyOf(seats.owner(i)), seats.heldAtMillis(i)));
+            }
+        } finally {
+            unlockSeats(locked);
+        }
+        return holds;
+    }
+
+    public Duration getReservationTtl() {
+        return reservationTtl;
+    }
+
+    // odtwarzanie stanu z dziennika: rezerwacja zachowuje pierwotny czas, więc wygasa w tym samym terminie
+    public void restoreHold(String ownerKey, long reservedAtMillis, String... seatCodes) {
+        validateSeatCodesProvided(seatCodes);
+
+        int[] indexes = resolveIndexes(seatCodes);
+        int ownerId = owners.forKey(ownerKey);
+        int[] restored = new int[indexes.length];
+        int restoredCount = 0;
+
+        long locked = lockSeats(indexes);
+        try {
+            for (int index : indexes) {
+                if (seats.state(index) != FREE) continue;
+
+                setState(index, RESERVED, SeatChange.Reason.RESERVED);
+                seats.setOwner(index, ownerId);
+                seats.setHeldAtMillis(index, reservedAtMillis);
+                restored[restoredCount++] = index;
+            }
+
+            if (restoredCount > 0) {
+                int count = restoredCount;
+                // odtworzenie dokłada miejsca, ale nie przesuwa czasu utworzenia istniejącej rezerwacji
+                reservationsByOwner.compute(ownerId, (id, current) -> {
+                    OwnerSeats held = (current == null) ? new OwnerSeats(reservedAtMillis) : current;
+                    held.add(restored, count, held.createdAtMillis());
+                    return held;
+                });
+            }
+        } finally {
+            unlockSeats(locked);
+        }
+
+        if (restoredCount > 0 && !reservationTtl.isZero() && !reservationTtl.isNegative()) {
+            long remainingMillis = Math.max(0L, reservedAtMillis + reservationTtl.toMillis() - System.currentTimeMillis());
+            expiryScheduler.get().schedule(this, Arrays.copyOf(restored, restoredCount), ownerId,
+                    reservedAtMillis, Duration.ofMillis(remainingMillis));
+        }
+    }
+
+    public void restoreRelease(String ownerKey, String... seatCodes) {
+        validateSeatCodesProvided(seatCodes);
+
+        int ownerId = owners.find(ownerKey);
+        if (ownerId < 0) return;
+        release(ownerId, SeatChangeJournal.NONE, seatCodes);
+    }
+
+    // zwalnia te z podanych miejsc, które właściciel nadal trzyma, i zwraca ich kody
+    List<String> release(int ownerId, SeatChangeJournal journal, String... seatCodes) {
+        validateSeatCodesProvided(seatCodes);
+
+        int[] indexes = resolveIndexes(seatCodes);
+        int[] released = new int[indexes.length];
+        int releasedCount = 0;
+        long locked = lockSeats(indexes);
+        try {
+            for (int index : indexes) {
+                if (seats.state(index) == RESERVED && seats.owner(index) == ownerId) released[releasedCount++] = index;
+            }
+            if (releasedCount == 0) return List.of();
+
+            released = Arrays.copyOf(released, releasedCount);
+            journal.record(List.of(codesOf(released)), System.currentTimeMillis());
+            for (int index : released) {
+                setState(index, FREE, SeatChange.Reason.RELEASED);
+                seats.setOwner(index, NO_OWNER);
+                seats.setHeldAtMillis(index, 0L);
+            }
+
+            removeFromReservation(ownerId, released, releasedCount);
+        } finally {
+            unlockSeats(locked);
+        }
+        return List.of(codesOf(released));
+    }
+
+    public void restoreSold(String... seatCodes) {
+        validateSeatCodesProvided(seatCodes);
+
+        int[] indexes = resolveIndexes(seatCodes);
+        long locked = lockSeats(indexes);
+        try {
+            for (int index : indexes) {
+                markSoldLocked(index);
+            }
+        } finally {
+            unlockSeats(locked);
+        }
+    }
+
+    void setListener(SeatingPlanListener listener) {
+        this.listener = listener;
+    }
+
+    int seatCount() {
+        return seatCount;
+    }
+
+    // odczyt bez blokady dla map miejsc; pojedynczy bajt nie może być rozerwany, najwyżej nieaktualny.
+    // Odczyt stripes (volatile) publikuje magazyn stanu
+    int stateOrdinal(int index) {
+        if (stripes == null) {
+            Objects.checkIndex(index, seatCount);
+            return FREE;
+        }
+        return seats.state(index);
+    }
+
+    public OccupancyCounters occupancy() {
+        return occupancy;
+    }
+
+    OwnerHandles owners() {
+        return owners;
+    }
+
+    // wartość sprzedanego miejsca (w groszach) doliczana do przychodu
+    void setSoldValue(IntToLongFunction soldValueMinor) {
+        this.soldValueMinor = Objects.requireNonNull(soldValueMinor, "soldValueMinor");
+    }
+
+    // seans usunięty z kina przenosi stan miejsc na stertę i oddaje sloty arenie do ponownego użycia;
+    // odczyt bez blokad (stateOrdinal), który pobrał magazyn przed zamianą, może zobaczyć już cudze sloty,
+    // ale plan nie jest wtedy osiągalny z sieci
+    void releaseSeatState() {
+        synchronized (this) {
+            seatStateReleased = true;
+            if (stripes == null) return;
+        }
+        long locked = lockAllSeats();
+        try {
+            SeatStateStore current = seats;
+            if (current instanceof HeapSeatStateStore) return;
+            seats = new HeapSeatStateStore(current, seatCount);
+            current.release();
+        } finally {
+            unlockSeats(locked);
+        }
+    }
+
+    void attachOccupancy(OccupancyCounters parentOrNull) {
+        // przed pierwszą zmianą liczniki stoją w miejscu (wszystko FREE), a monitor planu wstrzymuje tworzenie
+        // blokad; dodanie seansu do kina nie tworzy więc blokad ani stanu miejsc
+        synchronized (this) {
+            if (stripes == null) {
+                attachCounters(parentOrNull);
+                return;
+            }
+        }
+        long locked = lockAllSeats();
+        try {
+            attachCounters(parentOrNull);
+        } finally {
+            unlockSeats(locked);
+        }
+    }
 
-            if (status == SeatStatus.SOLD) {
+    private void attachCounters(OccupancyCounters parentOrNull) {
+        if (parentOrNull == null) occupancy.detach();
+        else occupancy.attachTo(parentOrNull);
+    }
+
+    // OwnerHandles.UNKNOWN nie pasuje do żadnego miejsca, więc właściciel bez rezerwacji kupi tylko wolne miejsca
+    void checkPurchasable(int customerOwnerId, int guestOwnerId, boolean isGuestWithoutToken, String[] seatCodes, int[] indexes) {
+        for (int i = 0; i < indexes.length; i++) {
+            String code = seatCodes[i];
+            byte state = seats.state(indexes[i]);
+
+            if (state == SOLD) {
                 throw new IllegalStateException("Seat already sold: " + code);
             }
 
-            if (status == SeatStatus.RESERVED) {
+            if (state == RESERVED) {
                 if (isGuestWithoutToken) {
                     throw new IllegalStateException("Seat is reserved (guest cannot buy without token): " + code);
                 }
 
-                String ownerKey = reservedByOwnerKey.get(code);
+                int ownerId = seats.owner(indexes[i]);
 
-                if (customerOwnerKey != null) {
-                    if (ownerKey == null || !ownerKey.equals(customerOwnerKey)) {
-                        throw new IllegalStateException("Seat reserved by another customer: " + code);
-                    }
+                if (customerOwnerId != OwnerHandles.NONE && ownerId != customerOwnerId) {
+                    throw new IllegalStateException("Seat reserved by another customer: " + code);
                 }
 
-                if (guestOwnerKey != null) {
-                    if (ownerKey == null || !ownerKey.equals(guestOwnerKey)) {
-                        throw new IllegalStateException("Seat reserved by someone else (invalid token): " + code);
-                    }
+                if (guestOwnerId != OwnerHandles.NONE && ownerId != guestOwnerId) {
+                    throw new IllegalStateException("Seat reserved by someone else (invalid token): " + code);
                 }
             }
         }
     }
 
-    public void markSold(String seatCode) {
-        SeatStatus status = seatStatus.get(seatCode);
-        if (status == null) throw new IllegalArgumentException("No such seat in this hall: " + seatCode);
-        seatStatus.put(seatCode, SeatStatus.SOLD);
-        reservedByOwnerKey.remove(seatCode);
-        reservedAtBySeatCode.remove(seatCode);
+    void markSoldLocked(int index) {
+        if (seats.state(index) == RESERVED) {
+            removeFromReservation(seats.owner(index), new int[]{index}, 1);
+        }
+        setState(index, SOLD, SeatChange.Reason.SOLD);
+        seats.setOwner(index, NO_OWNER);
+        seats.setHeldAtMillis(index, 0L);
     }
 
-    public SeatStatus getSeatStatus(String seatCode) {
-        SeatStatus status = seatStatus.get(seatCode);
-        if (status == null) throw new IllegalArgumentException("No such seat: " + seatCode);
-        return status;
+    void expireHold(int[] indexes, int ownerId, long reservedAtMillis) {
+        SeatingPlanListener current = listener;
+        int[] expired = new int[indexes.length];
+        int expiredCount = 0;
+        List<String> expiredCodes = List.of();
+        long locked = lockSeats(indexes);
+        try {
+            for (int index : indexes) {
+                // miejsce mogło zostać sprzedane albo zarezerwowane ponownie, zanim koło doszło do terminu
+                if (seats.state(index) != RESERVED
+                        || seats.owner(index) != ownerId
+                        || seats.heldAtMillis(index) != reservedAtMillis) {
+                    continue;
+                }
+
+                setState(index, FREE, SeatChange.Reason.EXPIRED);
+                seats.setOwner(index, NO_OWNER);
+                seats.setHeldAtMillis(index, 0L);
+                expired[expiredCount++] = index;
+            }
+
+            removeFromReservation(ownerId, expired, expiredCount);
+
+            // wygaśnięcie zapisujemy po zmianie: gdyby zapis się nie udał, odtworzona rezerwacja i tak wygaśnie
+            // w pierwotnym terminie. Pod blokadami, żeby nowa rezerwacja tych miejsc trafiła do dziennika później
+            if (current != null && expiredCount > 0) {
+                expiredCodes = List.of(codesOf(Arrays.copyOf(expired, expiredCount)));
+                current.onExpiring(owners.keyOf(ownerId), expiredCodes);
+            }
+        } finally {
+            unlockSeats(locked);
+        }
+
+        if (current != null && expiredCount > 0) {
+            current.onExpired(owners.keyOf(ownerId), expiredCodes);
+        }
     }
 
-    public List<String> getReservedSeats(String ownerKey) {
-        cleanupExpiredReservations(LocalDateTime.now());
-        Reservation r = reservationsByOwnerKey.get(ownerKey);
-        return (r == null) ? List.of() : r.seatCodes();
+    // każda zmiana stanu przechodzi tędy, żeby mapa wolnych miejsc i liczniki nie rozjechały się ze stanem miejsc
+    private void setState(int index, byte state, SeatChange.Reason reason) {
+        byte previous = seats.state(index);
+        if (previous == state) return;
+        seats.setState(index, state);
+        occupancy.transition(STATUSES[previous], STATUSES[state],
+                (previous == SOLD || state == SOLD) ? soldValueMinor.applyAsLong(index) : 0L);
+        changes.changed(index, STATUSES[state], reason);
+        if (freeSeats == null || (previous == FREE) == (state == FREE)) return;
+
+        int word = rowLayout.wordOf(index);
+        if (word < 0) return;
+        long bit = rowLayout.maskOf(index);
+        if (state == FREE) {
+            FREE_WORDS.getAndBitwiseOr(freeSeats, word, bit);
+        } else {
+            FREE_WORDS.getAndBitwiseAnd(freeSeats, word, ~bit);
+        }
     }
 
-    public void removeSeatCodesFromReservations(String ownerKey, String... seatCodes) {
-        if (ownerKey == null) return;
+    private String[] codesOf(int[] indexes) {
+        String[] codes = new String[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            codes[i] = seatIndex.codeAt(indexes[i]);
+        }
+        return codes;
+    }
 
-        Reservation r = reservationsByOwnerKey.get(ownerKey);
-        if (r == null || r.seatCodes().isEmpty()) return;
+    private ReentrantLock stripeFor(int index) {
+        return stripes()[index & (stripeCount - 1)];
+    }
 
-        Set<String> codes = new HashSet<>(Arrays.asList(seatCodes));
-        List<String> updated = new ArrayList<>(r.seatCodes());
-        updated.removeIf(codes::contains);
+    long lockSeats(int[] indexes) {
+        long mask = 0L;
+        for (int index : indexes) {
+            mask |= 1L << (index & (stripeCount - 1));
+        }
+        ReentrantLock[] locks = stripes();
+        for (long m = mask; m != 0; m &= m - 1) {
+            locks[Long.numberOfTrailingZeros(m)].lock();
+        }
+        return mask;
+    }
 
-        if (updated.isEmpty()) {
-            reservationsByOwnerKey.remove(ownerKey);
-            return;
+    private long lockAllSeats() {
+        long mask = (stripeCount == MAX_STRIPES) ? -1L : (1L << stripeCount) - 1;
+        ReentrantLock[] locks = stripes();
+        for (long m = mask; m != 0; m &= m - 1) {
+            locks[Long.numberOfTrailingZeros(m)].lock();
         }
+        return mask;
+    }
 
-        reservationsByOwnerKey.put(ownerKey, new Reservation(ownerKey, List.copyOf(updated), r.createdAt()));
+    void unlockSeats(long mask) {
+        ReentrantLock[] locks = stripes;
+        for (long m = mask; m != 0; m &= m - 1) {
+            locks[Long.numberOfTrailingZeros(m)].unlock();
+        }
     }
 
-    public Map<String, SeatStatus> seatStatusSnapshot() {
-        return Collections.unmodifiableMap(seatStatus);
+    private ReentrantLock[] stripes() {
+        ReentrantLock[] locks = stripes;
+        if (locks == null) {
+            synchronized (this) {
+                locks = stripes;
+                if (locks == null) {
+                    SeatStateArena arena = seatStateReleased ? null : seatStateArena.get();
+                    seats = (arena == null) ? new HeapSeatStateStore(seatCount) : arena.allocate(seatCount);
+                    if (rowLayout != null) freeSeats = rowLayout.allSeats().clone();
+
+                    locks = new ReentrantLock[stripeCount];
+                    for (int i = 0; i < locks.length; i++) {
+                        locks[i] = new ReentrantLock();
+                    }
+                    // zapis volatile publikuje też magazyn stanu i mapę wolnych miejsc
+                    stripes = locks;
+                }
+            }
+        }
+        return locks;
     }
 
-    public Collection<Reservation> reservationsSnapshot() {
-        return List.copyOf(reservationsByOwnerKey.values());
+    int[] resolveIndexes(String... seatCodes) {
+        int[] indexes = new int[seatCodes.length];
+        for (int i = 0; i < seatCodes.length; i++) {
+            indexes[i] = indexOrThrow(seatCodes[i], "No such seat in this hall: ");
+        }
+        return indexes;
+    }
+
+    private int indexOrThrow(String seatCode, String message) {
+        int index = seatIndex.indexOf(seatCode);
+        if (index < 0) throw new IllegalArgumentException(message + seatCode);
+        return index;
+    }
+
+    private void validateSeatCodesProvided(String... seatCodes) {
+        if (seatCodes == null || seatCodes.length == 0) {
+            throw new IllegalArgumentException("No seat codes provided");
+        }
     }
 
-    private void cleanupExpiredReservations(LocalDateTime now) {
-        if (reservationTtl.isZero() || reservationTtl.isNegative()) return;
+    // Miejsca jednego właściciela jako bity pozycji w sali. Zmiany idą przez compute() na mapie rezerwacji,
+    // ale ten sam właściciel może jednocześnie zmieniać miejsca z różnych pasów blokad, a odczyty nie biorą
+    // blokad wcale - dlatego metody są synchronized.
+    private static final class OwnerSeats {
 
-        List<String> expiredSeatCodes = new ArrayList<>();
-        for (Map.Entry<String, LocalDateTime> e : reservedAtBySeatCode.entrySet()) {
-            String seatCode = e.getKey();
-            LocalDateTime reservedAt = e.getValue();
-            if (reservedAt == null) continue;
+        private long[] words = new long[1];
+        private int count;
+        private long createdAtMillis;
 
-            if (now.isAfter(reservedAt.plus(reservationTtl))
-                    && seatStatus.get(seatCode) == SeatStatus.RESERVED) {
-                expiredSeatCodes.add(seatCode);
+        OwnerSeats(long createdAtMillis) {
+            this.createdAtMillis = createdAtMillis;
+        }
+
+        synchronized long createdAtMillis() {
+            return createdAtMillis;
+        }
+
+        synchronized void add(int[] indexes, int length, long createdAtMillis) {
+            for (int i = 0; i < length; i++) {
+                int word = indexes[i] >>> 6;
+                if (word >= words.length) words = Arrays.copyOf(words, Math.max(word + 1, words.length * 2));
+                long bit = 1L << indexes[i];
+                if ((words[word] & bit) == 0) {
+                    words[word] |= bit;
+                    count++;
+                }
             }
+            this.createdAtMillis = createdAtMillis;
         }
 
-        for (String seatCode : expiredSeatCodes) {
-            String ownerKey = reservedByOwnerKey.remove(seatCode);
-            reservedAtBySeatCode.remove(seatCode);
-            seatStatus.put(seatCode, SeatStatus.FREE);
+        // false, gdy właściciel nie trzyma już żadnego miejsca
+        synchronized boolean remove(int[] indexes, int length) {
+            for (int i = 0; i < length; i++) {
+                int word = indexes[i] >>> 6;
+                long bit = 1L << indexes[i];
+                if (word < words.length && (words[word] & bit) != 0) {
+                    words[word] &= ~bit;
+                    count--;
+                }
+            }
+            return count > 0;
+        }
 
-            if (ownerKey != null) {
-                removeSeatCodesFromReservations(ownerKey, seatCode);
+        synchronized List<String> seatCodes(SeatCodeIndex seatIndex) {
+            String[] codes = new String[count];
+            int n = 0;
+            for (int word = 0; word < words.length; word++) {
+                for (long bits = words[word]; bits != 0; bits &= bits - 1) {
+                    codes[n++] = seatIndex.codeAt((word << 6) + Long.numberOfTrailingZeros(bits));
+                }
             }
+            return List.of(codes);
+        }
+
+        synchronized Reservation toReservation(String ownerKey, SeatCodeIndex seatIndex) {
+            if (count == 0) return null;
+            LocalDateTime createdAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(createdAtMillis), ZoneId.systemDefault());
+            return new Reservation(ownerKey, seatCodes(seatIndex), createdAt);
         }
     }
 
-    private void validateSeatCodesProvided(String... seatCodes) {
-        if (seatCodes == null || seatCodes.length == 0) {
-            throw new IllegalArgumentException("No seat codes provided");
+    // kody miejsc w kolejności sali (duplikat kodu tylko raz), status czytany przez stateOrdinal
+    private final class StatusView extends AbstractMap<String, SeatStatus> {
+
+        // liczone przy pierwszym odczycie; wyścig najwyżej policzy to samo dwa razy
+        private int size = -1;
+
+        @Override
+        public SeatStatus get(Object key) {
+            int index = (key instanceof String code) ? seatIndex.indexOf(code) : -1;
+            return (index < 0) ? null : STATUSES[stateOrdinal(index)];
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String code && seatIndex.indexOf(code) >= 0;
+        }
+
+        @Override
+        public int size() {
+            int distinct = size;
+            if (distinct < 0) {
+                distinct = 0;
+                for (int i = 0; i < seatCount; i++) {
+                    if (seatIndex.indexOf(seatIndex.codeAt(i)) == i) distinct++;
+                }
+                size = distinct;
+            }
+            return distinct;
+        }
+
+        @Override
+        public Set<Entry<String, SeatStatus>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, SeatStatus>> iterator() {
+                    return new Iterator<>() {
+                        private int next = advance(0);
+
+                        private int advance(int from) {
+                            int i = from;
+                            while (i < seatCount && seatIndex.indexOf(seatIndex.codeAt(i)) != i) i++;
+                            return i;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < seatCount;
+                        }
+
+                        @Override
+                        public Entry<String, SeatStatus> next() {
+                            if (next >= seatCount) throw new NoSuchElementException();
+                            int index = next;
+                            next = advance(index + 1);
+                            return Map.entry(seatIndex.codeAt(index), STATUSES[stateOrdinal(index)]);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return StatusView.this.size();
+                }
+            };
         }
     }
 }
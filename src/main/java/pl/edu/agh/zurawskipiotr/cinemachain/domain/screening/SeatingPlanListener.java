@@ -0,0 +1,13 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.domain.screening;
+
+import java.util.List;
+
+// powiadomienia o zmianach stanu miejsc, których nie inicjuje wywołujący (np. wygaśnięcie rezerwacji)
+interface SeatingPlanListener {
+
+    // pod blokadami wygasłych miejsc, zaraz po ich zwolnieniu (zapis do dziennika w kolejności zmian)
+    void onExpiring(String ownerKey, List<String> seatCodes);
+
+    // po zwolnieniu blokad
+    void onExpired(String ownerKey, List<String> seatCodes);
+}
@@ -1,5 +1,7 @@
 package pl.edu.agh.zurawskipiotr.cinemachain.domain.venue;
 
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.chain.CinemaChain;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.screening.OccupancyCounters;
 import pl.edu.agh.zurawskipiotr.cinemachain.domain.screening.Screening;
 
 import java.time.LocalDate;
@@ -7,22 +9,38 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 public class Cinema {
     private final String id;
     private final List<Hall> rooms = new ArrayList<>();
     private final List<Screening> screenings = new ArrayList<>();
+    // seanse według godziny rozpoczęcia; lista w wartości zachowuje kolejność dodania
+    private final NavigableMap<LocalDateTime, List<Screening>> screeningsByStartTime = new ConcurrentSkipListMap<>();
+    private final Map<String, Screening> screeningsById = new ConcurrentHashMap<>();
+    // suma liczników zajętości wszystkich seansów kina, aktualizowana przez same seanse
+    private final OccupancyCounters occupancy = new OccupancyCounters();
+    // repertuar dzienny budowany przy pierwszym odczycie; zmiana seansów usuwa tylko dzień, którego dotyczy
+    private final Map<LocalDate, ProgrammeDay> programmeDays = new ConcurrentHashMap<>();
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm");
 
     private String name;
     private String address;
+    private volatile CinemaChain chain;
 
     public Cinema(String name, String address) {
-        this.id = UUID.randomUUID().toString();
+        this(UUID.randomUUID().toString(), name, address);
+    }
+
+    public Cinema(String id, String name, String address) {
+        this.id = Objects.requireNonNull(id, "id");
         this.name = name;
         this.address = address;
     }
@@ -47,6 +65,36 @@ public class Cinema {
         this.address = address;
     }
 
+    public OccupancyCounters occupancy() {
+        return occupancy;
+    }
+
+    public CinemaChain getChain() {
+        return chain;
+    }
+
+    // ustawiane tylko przez CinemaChain przy rejestracji kina; przenosi seanse kina do indeksu sieci,
+    // a przy konflikcie identyfikatorów nie zmienia niczego
+    public synchronized void setChain(CinemaChain chain) {
+        if (this.chain == chain) return;
+        if (chain != null) {
+            for (int i = 0; i < screenings.size(); i++) {
+                try {
+                    chain.indexScreening(screenings.get(i));
+                } catch (IllegalStateException e) {
+                    for (int j = 0; j < i; j++) {
+                        chain.unindexScreening(screenings.get(j));
+                    }
+                    throw e;
+                }
+            }
+        }
+        if (this.chain != null) {
+            screenings.forEach(this.chain::unindexScreening);
+        }
+        this.chain = chain;
+    }
+
     public List<Hall> getRooms() {
         return Collections.unmodifiableList(rooms);
     }
@@ -65,12 +113,35 @@ public class Cinema {
         hall.setCinema(this);
     }
 
-    public void addScreening(Screening screening) {
+    public synchronized void addScreening(Screening screening) {
         if (screening == null) throw new IllegalArgumentException("screening is required");
         if (!rooms.contains(screening.getHall())) {
             throw new IllegalStateException("pl.edu.agh.zurawskipiotr.cinemachain.model.Screening hall is not registered in this cinema: " + screening.getHall().getName());
         }
+        if (screeningsById.putIfAbsent(screening.getId(), screening) != null) {
+            throw new IllegalStateException("pl.edu.agh.zurawskipiotr.cinemachain.model.Screening with id already exists: " + screening.getId());
+        }
+        if (chain != null) {
+            try {
+                chain.indexScreening(screening);
+            } catch (IllegalStateException e) {
+                screeningsById.remove(screening.getId(), screening);
+                throw e;
+            }
+        }
         screenings.add(screening);
+        screeningsByStartTime.compute(screening.getStartTime(), (t, current) -> {
+            List<Screening> updated = (current == null) ? new ArrayList<>(1) : new ArrayList<>(current);
+            updated.add(screening);
+            return List.copyOf(updated);
+        });
+        programmeDays.remove(screening.getStartTime().toLocalDate());
+        screening.attachOccupancy(occupancy);
+    }
+
+    public Screening findScreeningById(String screeningId) {
+        if (screeningId == null) return null;
+        return screeningsById.get(screeningId);
     }
 
     public void removeHall(Hall hall) {
@@ -79,9 +150,19 @@ public class Cinema {
         if (hall.getCinema() == this) hall.setCinema(null);
     }
 
-    public void removeScreening(Screening screening) {
+    public synchronized void removeScreening(Screening screening) {
         if (screening == null) return;
-        screenings.remove(screening);
+        if (!screenings.remove(screening)) return;
+        screeningsById.remove(screening.getId(), screening);
+        if (chain != null) chain.unindexScreening(screening);
+        screeningsByStartTime.computeIfPresent(screening.getStartTime(), (t, current) -> {
+            List<Screening> updated = new ArrayList<>(current);
+            updated.remove(screening);
+            return updated.isEmpty() ? null : List.copyOf(updated);
+        });
+        programmeDays.remove(screening.getStartTime().toLocalDate());
+        screening.attachOccupancy(null);
+        screening.releaseSeatState();
     }
 
     public void printHalls() {
@@ -101,15 +182,15 @@ public class Cinema {
             System.out.println("  <none>");
             return;
         }
-        screenings.stream()
-                .sorted(Comparator.comparing(Screening::getStartTime))
-                .forEach(s -> {
-                    System.out.println("  - " + s.getMovie().title()
-                            + " | " + s.getStartTime()
-                            + " | hall=" + s.getHall().getName()
-                            + (s.isVip() ? " | VIP" : "")
-                            + (s.isThreeD() ? " | 3D" : ""));
-                });
+        for (List<Screening> atTime : screeningsByStartTime.values()) {
+            for (Screening s : atTime) {
+                System.out.println("  - " + s.getMovie().title()
+                        + " | " + s.getStartTime()
+                        + " | hall=" + s.getHall().getName()
+                        + (s.isVip() ? " | VIP" : "")
+                        + (s.isThreeD() ? " | 3D" : ""));
+            }
+        }
     }
 
     public List<Screening> getProgrammeForNextWeek() {
@@ -121,18 +202,40 @@ public class Cinema {
 
     public List<Screening> getProgrammeBetween(LocalDateTime fromInclusive, LocalDateTime toExclusive) {
         List<Screening> result = new ArrayList<>();
-        for (Screening s : screenings) {
-            LocalDateTime t = s.getStartTime();
-            if ((t.isEqual(fromInclusive) || t.isAfter(fromInclusive)) && t.isBefore(toExclusive)) {
-                result.add(s);
-            }
+        if (!fromInclusive.isBefore(toExclusive)) return result;
+
+        for (List<Screening> atTime : screeningsByStartTime.subMap(fromInclusive, true, toExclusive, false).values()) {
+            result.addAll(atTime);
         }
-        result.sort(Comparator.comparing(Screening::getStartTime));
         return result;
     }
 
+    // najbliższy tydzień od dzisiaj, tylko dni z seansami
+    public List<ProgrammeDay> getProgrammeDaysForNextWeek() {
+        LocalDate today = LocalDate.now();
+        // po zmianie daty minione dni nie będą już czytane
+        programmeDays.keySet().removeIf(date -> date.isBefore(today));
+
+        List<ProgrammeDay> week = new ArrayList<>(7);
+        for (int d = 0; d < 7; d++) {
+            ProgrammeDay day = getProgrammeDay(today.plusDays(d));
+            if (!day.isEmpty()) week.add(day);
+        }
+        return week;
+    }
+
+    public ProgrammeDay getProgrammeDay(LocalDate date) {
+        ProgrammeDay day = programmeDays.get(date);
+        if (day != null) return day;
+
+        // budowa pod monitorem kina, żeby addScreening/removeScreening nie unieważniły dnia w trakcie jego budowy
+        synchronized (this) {
+            return programmeDays.computeIfAbsent(date, this::buildProgrammeDay);
+        }
+    }
+
     public void printProgramme() {
-        List<Screening> week = getProgrammeForNextWeek();
+        List<ProgrammeDay> week = getProgrammeDaysForNextWeek();
 
         System.out.println("Repertuar kina: " + name + " (" + address + ")");
         System.out.println("Zakres: " + LocalDate.now() + " -> " + LocalDate.now().plusDays(6));
@@ -143,33 +246,29 @@ public class Cinema {
             return;
         }
 
-        DateTimeFormatter timeFmt = DateTimeFormatter.ofPattern("HH:mm");
-
-        Map<LocalDate, List<Screening>> byDate = new LinkedHashMap<>();
-        for (Screening s : week) {
-            LocalDate d = s.getStartTime().toLocalDate();
-            byDate.computeIfAbsent(d, k -> new ArrayList<>()).add(s);
-        }
-
-        for (Map.Entry<LocalDate, List<Screening>> entry : byDate.entrySet()) {
-            LocalDate date = entry.getKey();
-            System.out.println("=== " + date + " ===");
-            for (Screening s : entry.getValue()) {
-                System.out.println(
-                        s.getStartTime().format(timeFmt)
-                                + " | " + s.getMovie().title()
-                                + " | sala: " + s.getHall().getName()
-                                + buildTags(s)
-                );
-            }
-            System.out.println();
+        StringBuilder out = new StringBuilder();
+        for (ProgrammeDay day : week) {
+            out.append(day.rendered());
         }
+        System.out.print(out);
     }
 
-    private String buildTags(Screening s) {
-        List<String> tags = new ArrayList<>();
-        if (s.isVip()) tags.add("VIP");
-        if (s.isThreeD()) tags.add("3D");
-        return tags.isEmpty() ? "" : " | [" + String.join(", ", tags) + "]";
+    private ProgrammeDay buildProgrammeDay(LocalDate date) {
+        List<Screening> screenings = getProgrammeBetween(date.atStartOfDay(), date.plusDays(1).atStartOfDay());
+        if (screenings.isEmpty()) return new ProgrammeDay(date, screenings, "");
+
+        StringBuilder out = new StringBuilder();
+        out.append("=== ").append(date).append(" ===\n");
+        for (Screening s : screenings) {
+            out.append(s.getStartTime().format(TIME_FORMAT))
+                    .append(" | ").append(s.getMovie().title())
+                    .append(" | sala: ").append(s.getHall().getName());
+            if (s.isVip() && s.isThreeD()) out.append(" | [VIP, 3D]");
+            else if (s.isVip()) out.append(" | [VIP]");
+            else if (s.isThreeD()) out.append(" | [3D]");
+            out.append('\n');
+        }
+        out.append('\n');
+        return new ProgrammeDay(date, screenings, out.toString());
     }
 }
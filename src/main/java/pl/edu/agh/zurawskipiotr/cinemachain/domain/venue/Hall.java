@@ -8,6 +8,7 @@ public class Hall {
     private final String name;
     private final List<Seat> seats = new ArrayList<>();
     private Cinema cinema;
+    private volatile SeatIndex seatIndex;
 
     public Hall(String name) {
         this.name = name;
@@ -21,6 +22,15 @@ public class Hall {
         return Collections.unmodifiableList(seats);
     }
 
+    public SeatIndex getSeatIndex() {
+        SeatIndex index = seatIndex;
+        if (index == null) {
+            index = new SeatIndex(seats);
+            seatIndex = index;
+        }
+        return index;
+    }
+
     public Cinema getCinema() {
         return cinema;
     }
@@ -30,12 +40,14 @@ public class Hall {
         this.cinema = cinema;
     }
 
+    // zmiana układu unieważnia indeks; istniejące seanse zachowują indeks, z którym zostały utworzone
     public void addSeat(Seat seat) {
         seats.add(seat);
+        seatIndex = null;
     }
 
     public void removeSeat(Seat seat) {
-        seats.remove(seat);
+        if (seats.remove(seat)) seatIndex = null;
     }
 
 }
@@ -0,0 +1,21 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.domain.venue;
+
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.screening.Screening;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+
+// Repertuar kina na jeden dzień: seanse według godziny i gotowy blok tekstu do wypisania
+public record ProgrammeDay(LocalDate date, List<Screening> screenings, String rendered) {
+
+    public ProgrammeDay {
+        Objects.requireNonNull(date, "date");
+        screenings = List.copyOf(Objects.requireNonNull(screenings, "screenings"));
+        Objects.requireNonNull(rendered, "rendered");
+    }
+
+    public boolean isEmpty() {
+        return screenings.isEmpty();
+    }
+}
@@ -0,0 +1,101 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.domain.venue;
+
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.screening.SeatCodeIndex;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.screening.SeatMapTemplate;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.screening.SeatRowLayout;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+// Niezmienny indeks miejsc sali: kod -> pozycja w Hall.getSeats() i Seat.
+// Budowany raz na układ sali i współdzielony przez wszystkie seanse w tej sali.
+public final class SeatIndex {
+
+    private final List<Seat> seats;
+    private final SeatCodeIndex codeIndex;
+    private final SeatRowLayout rowLayout;
+    private final SeatMapTemplate mapTemplate;
+
+    public SeatIndex(List<Seat> seats) {
+        this.seats = List.copyOf(Objects.requireNonNull(seats, "seats"));
+
+        List<String> codes = new ArrayList<>(this.seats.size());
+        for (Seat seat : this.seats) {
+            codes.add(seat.getCode());
+        }
+        this.codeIndex = new SeatCodeIndex(codes);
+
+        int[] numbers = new int[this.seats.size()];
+        byte[] groups = new byte[this.seats.size()];
+        for (int i = 0; i < numbers.length; i++) {
+            numbers[i] = this.seats.get(i).number();
+            groups[i] = (byte) this.seats.get(i).category().ordinal();
+        }
+        Map<String, int[]> rows = rowsByLabel(numbers);
+        List<int[]> positions = List.copyOf(rows.values());
+        this.rowLayout = new SeatRowLayout(numbers.length, positions, numbers, groups, SeatCategory.values().length);
+        this.mapTemplate = new SeatMapTemplate(numbers.length, List.copyOf(rows.keySet()), positions, numbers);
+    }
+
+    public int indexOf(String seatCode) {
+        return codeIndex.indexOf(seatCode);
+    }
+
+    public Seat findSeat(String seatCode) {
+        int index = codeIndex.indexOf(seatCode);
+        return (index < 0) ? null : seats.get(index);
+    }
+
+    public Seat seatAt(int index) {
+        return seats.get(index);
+    }
+
+    public String codeAt(int index) {
+        return codeIndex.codeAt(index);
+    }
+
+    public int size() {
+        return seats.size();
+    }
+
+    public List<Seat> seats() {
+        return seats;
+    }
+
+    public SeatCodeIndex codeIndex() {
+        return codeIndex;
+    }
+
+    public SeatRowLayout rowLayout() {
+        return rowLayout;
+    }
+
+    public SeatMapTemplate mapTemplate() {
+        return mapTemplate;
+    }
+
+    // rzędy w kolejności jak na mapie sali (pierwszy rząd najbliżej ekranu), miejsca w rzędzie według numeru;
+    // duplikaty kodu pomijamy, bo plan i tak zapisuje stan pod pierwszym wystąpieniem
+    private Map<String, int[]> rowsByLabel(int[] numbers) {
+        Map<String, List<Integer>> positionsByRow = new TreeMap<>();
+        for (int i = 0; i < seats.size(); i++) {
+            Seat seat = seats.get(i);
+            if (codeIndex.indexOf(seat.getCode()) == i) {
+                positionsByRow.computeIfAbsent(seat.row(), r -> new ArrayList<>()).add(i);
+            }
+        }
+
+        Map<String, int[]> rows = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Integer>> entry : positionsByRow.entrySet()) {
+            List<Integer> positions = entry.getValue();
+            positions.sort(Comparator.comparingInt(p -> numbers[p]));
+            rows.put(entry.getKey(), positions.stream().mapToInt(Integer::intValue).toArray());
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,65 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.monitoring;
+
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.screening.OccupancyCounters;
+import pl.edu.agh.zurawskipiotr.cinemachain.pricing.MinorUnitPricingPolicy;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+// Widok MXBean nad licznikami: seans i kino mają po jednym, sieć sumuje liczniki swoich kin
+final class Occupancy implements OccupancyMXBean {
+
+    private final Supplier<? extends Collection<OccupancyCounters>> counters;
+
+    Occupancy(OccupancyCounters counters) {
+        List<OccupancyCounters> single = List.of(counters);
+        this.counters = () -> single;
+    }
+
+    Occupancy(Supplier<? extends Collection<OccupancyCounters>> counters) {
+        this.counters = counters;
+    }
+
+    @Override
+    public long getCapacity() {
+        return sum(OccupancyCounters::capacity);
+    }
+
+    @Override
+    public long getFreeSeats() {
+        return sum(OccupancyCounters::freeSeats);
+    }
+
+    @Override
+    public long getReservedSeats() {
+        return sum(OccupancyCounters::reservedSeats);
+    }
+
+    @Override
+    public long getSoldSeats() {
+        return sum(OccupancyCounters::soldSeats);
+    }
+
+    @Override
+    public double getOccupancyPercent() {
+        long capacity = getCapacity();
+        if (capacity == 0) return 0.0;
+        return 100.0 * (getReservedSeats() + getSoldSeats()) / capacity;
+    }
+
+    @Override
+    public BigDecimal getRevenue() {
+        return MinorUnitPricingPolicy.fromMinorUnits(sum(OccupancyCounters::revenueMinor));
+    }
+
+    private long sum(ToLongFunction<OccupancyCounters> counter) {
+        long total = 0L;
+        for (OccupancyCounters c : counters.get()) {
+            total += counter.applyAsLong(c);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,20 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.monitoring;
+
+import java.math.BigDecimal;
+
+// Zajętość i przychód seansu, kina albo całej sieci; odczyt nie dotyka map miejsc
+public interface OccupancyMXBean {
+
+    long getCapacity();
+
+    long getFreeSeats();
+
+    long getReservedSeats();
+
+    long getSoldSeats();
+
+    // (zarezerwowane + sprzedane) / pojemność, w procentach
+    double getOccupancyPercent();
+
+    BigDecimal getRevenue();
+}
@@ -0,0 +1,114 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.monitoring;
+
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.chain.CinemaChain;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.screening.Screening;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.Cinema;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+// Rejestruje MBeany zajętości dla sieci, każdego kina i każdego seansu:
+//   pl.edu.agh.zurawskipiotr.cinemachain:type=Chain,id=...
+//   pl.edu.agh.zurawskipiotr.cinemachain:type=Cinema,id=...
+//   pl.edu.agh.zurawskipiotr.cinemachain:type=Screening,cinema=...,id=...
+// Nowe i usunięte kina/seanse są uwzględniane przy refresh().
+public final class OccupancyMonitor implements AutoCloseable {
+
+    private static final String DOMAIN = "pl.edu.agh.zurawskipiotr.cinemachain";
+
+    private final CinemaChain chain;
+    private final MBeanServer server;
+    private final Set<ObjectName> registered = new HashSet<>();
+
+    private OccupancyMonitor(CinemaChain chain, MBeanServer server) {
+        this.chain = chain;
+        this.server = server;
+    }
+
+    public static OccupancyMonitor register(CinemaChain chain) {
+        return register(chain, ManagementFactory.getPlatformMBeanServer());
+    }
+
+    public static OccupancyMonitor register(CinemaChain chain, MBeanServer server) {
+        OccupancyMonitor monitor = new OccupancyMonitor(
+                Objects.requireNonNull(chain, "chain"),
+                Objects.requireNonNull(server, "server"));
+
+        monitor.registerIfAbsent(name("type=Chain,id=" + ObjectName.quote(chain.getId())), new Occupancy(
+                () -> chain.getCinemas().values().stream().map(Cinema::occupancy).toList()));
+        monitor.refresh();
+        return monitor;
+    }
+
+    public synchronized void refresh() {
+        Set<ObjectName> current = new HashSet<>();
+        current.add(name("type=Chain,id=" + ObjectName.quote(chain.getId())));
+
+        for (Cinema cinema : chain.getCinemas().values()) {
+            ObjectName cinemaName = name("type=Cinema,id=" + ObjectName.quote(cinema.getId()));
+            current.add(cinemaName);
+            registerIfAbsent(cinemaName, new Occupancy(cinema.occupancy()));
+
+            for (Screening screening : cinema.getScreenings()) {
+                ObjectName screeningName = name("type=Screening,cinema=" + ObjectName.quote(cinema.getId())
+                        + ",id=" + ObjectName.quote(screening.getId()));
+                current.add(screeningName);
+                registerIfAbsent(screeningName, new Occupancy(screening.occupancy()));
+            }
+        }
+
+        for (ObjectName name : Set.copyOf(registered)) {
+            if (!current.contains(name)) unregister(name);
+        }
+    }
+
+    public synchronized int registeredCount() {
+        return registered.size();
+    }
+
+    @Override
+    public synchronized void close() {
+        for (ObjectName name : Set.copyOf(registered)) {
+            unregister(name);
+        }
+    }
+
+    private void registerIfAbsent(ObjectName name, OccupancyMXBean bean) {
+        if (registered.contains(name)) return;
+        try {
+            server.registerMBean(bean, name);
+            registered.add(name);
+        } catch (InstanceAlreadyExistsException ex) {
+            throw new IllegalStateException("MBean already registered: " + name, ex);
+        } catch (JMException ex) {
+            throw new IllegalStateException("Cannot register MBean: " + name, ex);
+        }
+    }
+
+    private void unregister(ObjectName name) {
+        registered.remove(name);
+        try {
+            server.unregisterMBean(name);
+        } catch (InstanceNotFoundException ignored) {
+            // ktoś wyrejestrował go ręcznie
+        } catch (JMException ex) {
+            throw new IllegalStateException("Cannot unregister MBean: " + name, ex);
+        }
+    }
+
+    private static ObjectName name(String properties) {
+        try {
+            return new ObjectName(DOMAIN + ":" + properties);
+        } catch (MalformedObjectNameException ex) {
+            throw new IllegalArgumentException("Invalid MBean name: " + properties, ex);
+        }
+    }
+}
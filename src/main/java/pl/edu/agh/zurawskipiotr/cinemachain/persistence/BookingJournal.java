@@ -0,0 +1,381 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.persistence;
+
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.chain.CinemaChain;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.sales.Ticket;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+// Dziennik zdarzeń rezerwacji i sprzedaży dopisywany na koniec pliku (write-ahead log).
+// Wątek zapisujący zbiera wszystko, co przyszło w trakcie poprzedniego fsync, i utrwala to jednym force()
+// (group commit), a wywołujący czeka w awaitDurable tylko na swój numer sekwencyjny.
+public final class BookingJournal implements AutoCloseable {
+
+    static final byte RESERVED = 1;
+    static final byte PURCHASED = 2;
+    static final byte EXPIRED = 3;
+    // zakup zbiorczy na kilku seansach w jednym rekordzie (jedno CRC, więc odtwarza się cały albo wcale)
+    static final byte PURCHASED_BATCH = 4;
+
+    // nagłówek rekordu: długość treści i jej CRC32; urwany lub uszkodzony ogon pliku jest odrzucany przy odczycie
+    static final int HEADER_SIZE = 2 * Integer.BYTES;
+
+    private static final int DEFAULT_MAX_BATCH_RECORDS = 1024;
+
+    // wątek pętli zdarzeń nie może czekać na fsync: między beginDeferred i endDeferred awaitDurable
+    // tylko zapamiętuje największy numer, a potwierdzenie przychodzi później przez whenDurable
+    private static final ThreadLocal<long[]> DEFERRED = new ThreadLocal<>();
+
+    private final FileChannel channel;
+    private final int maxBatchRecords;
+    private final Thread writer;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition hasPending = lock.newCondition();
+    private final Condition durable = lock.newCondition();
+    private final ArrayDeque<byte[]> pending = new ArrayDeque<>();
+    private final PriorityQueue<DurableWaiter> waiters = new PriorityQueue<>();
+    private long appendedSequence;
+    private long durableSequence;
+    private IOException failure;
+    private boolean closed;
+
+    private ByteBuffer batchBuffer = ByteBuffer.allocateDirect(64 * 1024);
+
+    private BookingJournal(FileChannel channel, int maxBatchRecords) {
+        this.channel = channel;
+        this.maxBatchRecords = maxBatchRecords;
+        this.writer = new Thread(this::run, "booking-journal");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public static BookingJournal open(Path file) throws IOException {
+        return open(file, DEFAULT_MAX_BATCH_RECORDS);
+    }
+
+    public static BookingJournal open(Path file, int maxBatchRecords) throws IOException {
+        Objects.requireNonNull(file, "file");
+        if (maxBatchRecords <= 0) {
+            throw new IllegalArgumentException("Max batch records must be > 0");
+        }
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long validLength = JournalReplayer.validLength(channel);
+            if (validLength < channel.size()) {
+                channel.truncate(validLength);
+                channel.force(true);
+            }
+            channel.position(validLength);
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+        return new BookingJournal(channel, maxBatchRecords);
+    }
+
+    // tryb odzyskiwania: sieć musi mieć już kina, seanse i klientów o tych samych id co przed restartem
+    public static BookingJournal recover(Path file, CinemaChain chain) throws IOException {
+        Objects.requireNonNull(chain, "chain");
+        if (chain.getJournal() != null) {
+            throw new IllegalStateException("Chain already has a booking journal attached");
+        }
+
+        JournalReplayer.replay(file, chain);
+        BookingJournal journal = open(file);
+        chain.attachJournal(journal);
+        return journal;
+    }
+
+    public long appendReserved(String screeningId, String ownerKey, long reservedAtMillis, List<String> seatCodes) {
+        return append(encode(RESERVED, out -> {
+            out.writeUTF(screeningId);
+            out.writeUTF(ownerKey);
+            out.writeLong(reservedAtMillis);
+            writeCodes(out, seatCodes);
+        }));
+    }
+
+    public long appendPurchased(String screeningId, String customerIdOrNull, List<Ticket> tickets) {
+        return append(encode(PURCHASED, out -> {
+            out.writeUTF(screeningId);
+            out.writeUTF((customerIdOrNull == null) ? "" : customerIdOrNull);
+            writeTickets(out, tickets);
+        }));
+    }
+
+    // sections: bilety pogrupowane po seansach
+    public long appendPurchasedBatch(String customerIdOrNull, List<List<Ticket>> sections) {
+        return append(encode(PURCHASED_BATCH, out -> {
+            out.writeUTF((customerIdOrNull == null) ? "" : customerIdOrNull);
+            out.writeInt(sections.size());
+            for (List<Ticket> tickets : sections) {
+                out.writeUTF(tickets.get(0).getScreening().getId());
+                writeTickets(out, tickets);
+            }
+        }));
+    }
+
+    public long appendExpired(String screeningId, String ownerKey, List<String> seatCodes) {
+        return append(encode(EXPIRED, out -> {
+            out.writeUTF(screeningId);
+            out.writeUTF(ownerKey);
+            writeCodes(out, seatCodes);
+        }));
+    }
+
+    public void awaitDurable(long sequence) {
+        long[] deferred = DEFERRED.get();
+        if (deferred != null) {
+            deferred[0] = Math.max(deferred[0], sequence);
+            return;
+        }
+
+        lock.lock();
+        try {
+            while (durableSequence < sequence) {
+                if (failure != null) {
+                    throw new UncheckedIOException("Booking journal write failed", failure);
+                }
+                durable.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // future kończony przez wątek zapisujący, więc zależne etapy nie powinny blokować
+    public CompletableFuture<Void> whenDurable(long sequence) {
+        lock.lock();
+        try {
+            if (failure != null) {
+                return CompletableFuture.failedFuture(new UncheckedIOException("Booking journal write failed", failure));
+            }
+            if (durableSequence >= sequence) {
+                return CompletableFuture.completedFuture(null);
+            }
+            DurableWaiter waiter = new DurableWaiter(sequence);
+            waiters.add(waiter);
+            return waiter.future;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public static void beginDeferred() {
+        if (DEFERRED.get() != null) {
+            throw new IllegalStateException("Deferred durability already started on this thread");
+        }
+        DEFERRED.set(new long[1]);
+    }
+
+    public static boolean isDeferred() {
+        return DEFERRED.get() != null;
+    }
+
+    // największy numer odłożony od beginDeferred (0, jeśli nic nie zapisano)
+    public static long endDeferred() {
+        long[] deferred = DEFERRED.get();
+        DEFERRED.remove();
+        return (deferred == null) ? 0L : deferred[0];
+    }
+
+    public long durableSequence() {
+        lock.lock();
+        try {
+            return durableSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) return;
+            closed = true;
+            hasPending.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+
+        channel.close();
+    }
+
+    private long append(byte[] record) {
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Booking journal is closed");
+            }
+            if (failure != null) {
+                throw new UncheckedIOException("Booking journal write failed", failure);
+            }
+            pending.add(record);
+            hasPending.signal();
+            return ++appendedSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void run() {
+        List<byte[]> batch = new ArrayList<>();
+        while (true) {
+            long batchEnd;
+            lock.lock();
+            try {
+                while (pending.isEmpty() && !closed) {
+                    hasPending.awaitUninterruptibly();
+                }
+                if (pending.isEmpty()) return;
+
+                while (!pending.isEmpty() && batch.size() < maxBatchRecords) {
+                    batch.add(pending.poll());
+                }
+                batchEnd = durableSequence + batch.size();
+            } finally {
+                lock.unlock();
+            }
+
+            IOException error = null;
+            try {
+                write(batch);
+                channel.force(false);
+            } catch (IOException ex) {
+                error = ex;
+            }
+            batch.clear();
+
+            List<DurableWaiter> completed = new ArrayList<>();
+            lock.lock();
+            try {
+                if (error != null) {
+                    failure = error;
+                    pending.clear();
+                    completed.addAll(waiters);
+                    waiters.clear();
+                    durable.signalAll();
+                } else {
+                    durableSequence = batchEnd;
+                    while (!waiters.isEmpty() && waiters.peek().sequence <= batchEnd) {
+                        completed.add(waiters.poll());
+                    }
+                    durable.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            for (DurableWaiter waiter : completed) {
+                if (error != null) waiter.future.completeExceptionally(new UncheckedIOException("Booking journal write failed", error));
+                else waiter.future.complete(null);
+            }
+            if (error != null) return;
+        }
+    }
+
+    private void write(List<byte[]> batch) throws IOException {
+        int size = 0;
+        for (byte[] record : batch) {
+            size += record.length;
+        }
+        if (batchBuffer.capacity() < size) {
+            batchBuffer = ByteBuffer.allocateDirect(Integer.highestOneBit(size - 1) << 1);
+        }
+
+        batchBuffer.clear();
+        for (byte[] record : batch) {
+            batchBuffer.put(record);
+        }
+        batchBuffer.flip();
+        while (batchBuffer.hasRemaining()) {
+            channel.write(batchBuffer);
+        }
+    }
+
+    private static void writeCodes(DataOutputStream out, List<String> seatCodes) throws IOException {
+        out.writeInt(seatCodes.size());
+        for (String code : seatCodes) {
+            out.writeUTF(code);
+        }
+    }
+
+    private static void writeTickets(DataOutputStream out, List<Ticket> tickets) throws IOException {
+        out.writeInt(tickets.size());
+        for (Ticket ticket : tickets) {
+            out.writeLong(ticket.getId());
+            out.writeUTF(ticket.getSeat().getCode());
+        }
+    }
+
+    private static byte[] encode(byte type, RecordWriter body) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeByte(type);
+            body.write(out);
+            out.flush();
+
+            byte[] record = bytes.toByteArray();
+            int length = record.length - HEADER_SIZE;
+            CRC32 crc = new CRC32();
+            crc.update(record, HEADER_SIZE, length);
+
+            ByteBuffer header = ByteBuffer.wrap(record, 0, HEADER_SIZE);
+            header.putInt(length);
+            header.putInt((int) crc.getValue());
+            return record;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static final class DurableWaiter implements Comparable<DurableWaiter> {
+        private final long sequence;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private DurableWaiter(long sequence) {
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(DurableWaiter other) {
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+
+    @FunctionalInterface
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
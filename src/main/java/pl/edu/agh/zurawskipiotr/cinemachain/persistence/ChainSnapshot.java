@@ -0,0 +1,476 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.persistence;
+
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.catalog.Genre;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.catalog.Movie;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.chain.CinemaChain;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.customer.Customer;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.sales.Ticket;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.screening.Screening;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.screening.SeatHold;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.screening.SeatStatus;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.Cinema;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.Hall;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.Seat;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.SeatCategory;
+import pl.edu.agh.zurawskipiotr.cinemachain.pricing.DefaultPricingPolicy;
+import pl.edu.agh.zurawskipiotr.cinemachain.pricing.PricingPolicy;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+// Binarny zrzut całej sieci. Filmy, klienci, sale i cenniki trafiają do osobnych tabel, a seanse i bilety
+// odwołują się do nich numerem pozycji, więc współdzielone obiekty są zapisywane i odtwarzane raz.
+// Zrzut robiony w trakcie ruchu nie jest spójny między seansami; do tego służy BookingJournal.
+public final class ChainSnapshot {
+
+    private static final int MAGIC = 0x43434E53; // "CCNS"
+    private static final short VERSION = 1;
+
+    private static final int NONE = -1;
+    private static final byte DEFAULT_PRICING = 1;
+
+    private static final Genre[] GENRES = Genre.values();
+    private static final SeatCategory[] CATEGORIES = SeatCategory.values();
+
+    private ChainSnapshot() {
+    }
+
+    public static void write(CinemaChain chain, Path file) throws IOException {
+        Objects.requireNonNull(chain, "chain");
+        Objects.requireNonNull(file, "file");
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            new Writer(chain, out).write();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static CinemaChain read(Path file) throws IOException {
+        Objects.requireNonNull(file, "file");
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large to map: " + size + " bytes");
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            try {
+                return new Reader(buffer).read();
+            } catch (RuntimeException ex) {
+                throw new IOException("Corrupt chain snapshot: " + file, ex);
+            }
+        }
+    }
+
+    private static final class Writer {
+        private final CinemaChain chain;
+        private final DataOutputStream out;
+
+        private final Map<Movie, Integer> movieRefs = new IdentityHashMap<>();
+        private final Map<Customer, Integer> customerRefs = new IdentityHashMap<>();
+        private final Map<Hall, Integer> hallRefs = new IdentityHashMap<>();
+        private final Map<PricingPolicy, Integer> pricingRefs = new IdentityHashMap<>();
+        private final Map<Cinema, Integer> cinemaRefs = new IdentityHashMap<>();
+
+        private final List<Cinema> cinemas;
+
+        private Writer(CinemaChain chain, DataOutputStream out) {
+            this.chain = chain;
+            this.out = out;
+            this.cinemas = List.copyOf(chain.getCinemas().values());
+        }
+
+        private void write() throws IOException {
+            collectReferences();
+
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            writeString(chain.getId());
+            writeString(chain.getChainName());
+
+            writePricingPolicies();
+            writeMovies();
+            writeCustomers();
+
+            out.writeInt(cinemas.size());
+            for (Cinema cinema : cinemas) {
+                writeString(cinema.getId());
+                writeString(cinema.getName());
+                writeString(cinema.getAddress());
+            }
+
+            writeHalls();
+
+            for (Cinema cinema : cinemas) {
+                List<Screening> screenings = cinema.getScreenings();
+                out.writeInt(screenings.size());
+                for (Screening screening : screenings) {
+                    writeScreening(screening);
+                }
+            }
+        }
+
+        private void collectReferences() {
+            for (Movie movie : chain.getMovies()) {
+                ref(movieRefs, movie);
+            }
+            for (Customer customer : chain.getCustomers().values()) {
+                ref(customerRefs, customer);
+            }
+            for (int i = 0; i < cinemas.size(); i++) {
+                Cinema cinema = cinemas.get(i);
+                cinemaRefs.put(cinema, i);
+                for (Hall hall : cinema.getRooms()) {
+                    ref(hallRefs, hall);
+                }
+            }
+            for (Cinema cinema : cinemas) {
+                for (Screening screening : cinema.getScreenings()) {
+                    ref(movieRefs, screening.getMovie());
+                    ref(hallRefs, screening.getHall());
+                    ref(pricingRefs, screening.getPricingPolicy());
+                    for (Ticket ticket : screening.getSoldTickets()) {
+                        if (ticket.getOwner() != null) ref(customerRefs, ticket.getOwner());
+                    }
+                }
+            }
+        }
+
+        private void writePricingPolicies() throws IOException {
+            out.writeInt(pricingRefs.size());
+            for (PricingPolicy policy : ordered(pricingRefs)) {
+                if (!(policy instanceof DefaultPricingPolicy pricing)) {
+                    throw new IllegalArgumentException("Unsupported pricing policy in snapshot: " + policy.getClass().getName());
+                }
+                out.writeByte(DEFAULT_PRICING);
+                Map<SeatCategory, BigDecimal> bases = pricing.getBasePrices();
+                out.writeByte(bases.size());
+                for (Map.Entry<SeatCategory, BigDecimal> entry : bases.entrySet()) {
+                    out.writeByte(entry.getKey().ordinal());
+                    writeDecimal(entry.getValue());
+                }
+                writeDecimal(pricing.getThreeDSurcharge());
+                writeDecimal(pricing.getVipScreeningSurcharge());
+            }
+        }
+
+        private void writeMovies() throws IOException {
+            Set<Movie> catalogue = Collections.newSetFromMap(new IdentityHashMap<>());
+            catalogue.addAll(chain.getMovies());
+
+            out.writeInt(movieRefs.size());
+            for (Movie movie : ordered(movieRefs)) {
+                out.writeBoolean(catalogue.contains(movie));
+                writeString(movie.title());
+                out.writeInt(movie.durationMinutes());
+                out.writeInt(movie.ageRestriction());
+                out.writeByte(movie.genres().size());
+                for (Genre genre : movie.genres()) {
+                    out.writeByte(genre.ordinal());
+                }
+            }
+        }
+
+        private void writeCustomers() throws IOException {
+            out.writeInt(customerRefs.size());
+            for (Customer customer : ordered(customerRefs)) {
+                out.writeBoolean(chain.getCustomers().get(customer.getId()) == customer);
+                writeString(customer.getId());
+                writeString(customer.getFirstName());
+                writeString(customer.getLastName());
+                writeString(customer.getEmail());
+            }
+        }
+
+        private void writeHalls() throws IOException {
+            out.writeInt(hallRefs.size());
+            for (Hall hall : ordered(hallRefs)) {
+                Cinema cinema = hall.getCinema();
+                Integer cinemaRef = (cinema == null) ? null : cinemaRefs.get(cinema);
+                out.writeInt((cinemaRef == null) ? NONE : cinemaRef);
+                writeString(hall.getName());
+
+                List<Seat> seats = hall.getSeats();
+                out.writeInt(seats.size());
+                for (Seat seat : seats) {
+                    writeString(seat.row());
+                    out.writeInt(seat.number());
+                    out.writeByte(seat.category().ordinal());
+                }
+            }
+        }
+
+        private void writeScreening(Screening screening) throws IOException {
+            writeString(screening.getId());
+            out.writeInt(movieRefs.get(screening.getMovie()));
+            out.writeInt(hallRefs.get(screening.getHall()));
+            out.writeInt(pricingRefs.get(screening.getPricingPolicy()));
+            out.writeBoolean(screening.isVip());
+            out.writeBoolean(screening.isThreeD());
+            out.writeLong(screening.getStartTime().toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(screening.getStartTime().getNano());
+            out.writeLong(screening.getReservationTtl().toMillis());
+
+            List<SeatHold> holds = screening.seatHolds();
+            out.writeInt(holds.size());
+            for (SeatHold hold : holds) {
+                writeString(hold.seatCode());
+                writeString(hold.ownerKey());
+                out.writeLong(hold.reservedAtMillis());
+            }
+
+            List<Ticket> tickets = List.copyOf(screening.getSoldTickets());
+            Set<String> ticketedSeats = new HashSet<>();
+            out.writeInt(tickets.size());
+            for (Ticket ticket : tickets) {
+                out.writeLong(ticket.getId());
+                writeString(ticket.getSeat().getCode());
+                out.writeInt((ticket.getOwner() == null) ? NONE : customerRefs.get(ticket.getOwner()));
+                out.writeBoolean(chain.findTicketById(ticket.getId()) == ticket);
+                ticketedSeats.add(ticket.getSeat().getCode());
+            }
+
+            // miejsca oznaczone jako sprzedane bez biletu (markSold); liczniki pozwalają pominąć mapę miejsc seansu,
+            // na którym każde sprzedane miejsce ma bilet
+            List<String> soldWithoutTicket = new ArrayList<>();
+            if (screening.occupancy().soldSeats() > ticketedSeats.size()) {
+                for (Map.Entry<String, SeatStatus> entry : screening.seatStatus().entrySet()) {
+                    if (entry.getValue() == SeatStatus.SOLD && !ticketedSeats.contains(entry.getKey())) {
+                        soldWithoutTicket.add(entry.getKey());
+                    }
+                }
+            }
+            out.writeInt(soldWithoutTicket.size());
+            for (String code : soldWithoutTicket) {
+                writeString(code);
+            }
+        }
+
+        private void writeDecimal(BigDecimal value) throws IOException {
+            byte[] unscaled = value.unscaledValue().toByteArray();
+            out.writeInt(value.scale());
+            out.writeByte(unscaled.length);
+            out.write(unscaled);
+        }
+
+        private void writeString(String value) throws IOException {
+            if (value == null) {
+                out.writeInt(NONE);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        private static <T> void ref(Map<T, Integer> refs, T value) {
+            refs.putIfAbsent(value, refs.size());
+        }
+
+        private static <T> List<T> ordered(Map<T, Integer> refs) {
+            List<T> values = new ArrayList<>(Collections.nCopies(refs.size(), null));
+            refs.forEach((value, ref) -> values.set(ref, value));
+            return values;
+        }
+    }
+
+    private static final class Reader {
+        private final ByteBuffer in;
+
+        private PricingPolicy[] pricingPolicies;
+        private Movie[] movies;
+        private Customer[] customers;
+        private Cinema[] cinemas;
+        private Hall[] halls;
+
+        private Reader(ByteBuffer in) {
+            this.in = in;
+        }
+
+        private CinemaChain read() throws IOException {
+            if (in.remaining() < Integer.BYTES + Short.BYTES || in.getInt() != MAGIC) {
+                throw new IOException("Not a cinema chain snapshot");
+            }
+            short version = in.getShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version: " + version);
+            }
+
+            CinemaChain chain = new CinemaChain(readString(), readString());
+
+            readPricingPolicies();
+            readMovies(chain);
+            readCustomers(chain);
+
+            cinemas = new Cinema[in.getInt()];
+            for (int i = 0; i < cinemas.length; i++) {
+                cinemas[i] = new Cinema(readString(), readString(), readString());
+                chain.addCinema(cinemas[i]);
+            }
+
+            readHalls();
+
+            for (Cinema cinema : cinemas) {
+                int count = in.getInt();
+                for (int i = 0; i < count; i++) {
+                    readScreening(chain, cinema);
+                }
+            }
+            return chain;
+        }
+
+        private void readPricingPolicies() throws IOException {
+            pricingPolicies = new PricingPolicy[in.getInt()];
+            for (int i = 0; i < pricingPolicies.length; i++) {
+                byte kind = in.get();
+                if (kind != DEFAULT_PRICING) {
+                    throw new IOException("Unknown pricing policy kind: " + kind);
+                }
+                Map<SeatCategory, BigDecimal> bases = new EnumMap<>(SeatCategory.class);
+                int count = in.get();
+                for (int c = 0; c < count; c++) {
+                    SeatCategory category = CATEGORIES[in.get()];
+                    bases.put(category, readDecimal());
+                }
+                pricingPolicies[i] = new DefaultPricingPolicy(bases, readDecimal(), readDecimal());
+            }
+        }
+
+        private void readMovies(CinemaChain chain) {
+            movies = new Movie[in.getInt()];
+            for (int i = 0; i < movies.length; i++) {
+                boolean inCatalogue = in.get() != 0;
+                String title = readString();
+                int duration = in.getInt();
+                int ageRestriction = in.getInt();
+                Genre[] genres = new Genre[in.get()];
+                for (int g = 0; g < genres.length; g++) {
+                    genres[g] = GENRES[in.get()];
+                }
+
+                movies[i] = new Movie(title, duration, List.of(genres), ageRestriction);
+                if (inCatalogue) chain.addMovie(movies[i]);
+            }
+        }
+
+        private void readCustomers(CinemaChain chain) {
+            customers = new Customer[in.getInt()];
+            for (int i = 0; i < customers.length; i++) {
+                boolean registered = in.get() != 0;
+                customers[i] = new Customer(readString(), readString(), readString(), readString());
+                if (registered) chain.registerCustomer(customers[i]);
+            }
+        }
+
+        private void readHalls() {
+            halls = new Hall[in.getInt()];
+            for (int i = 0; i < halls.length; i++) {
+                int cinemaRef = in.getInt();
+                Hall hall = new Hall(readString());
+
+                int seatCount = in.getInt();
+                for (int s = 0; s < seatCount; s++) {
+                    String row = readString();
+                    int number = in.getInt();
+                    hall.addSeat(new Seat(row, number, CATEGORIES[in.get()]));
+                }
+
+                if (cinemaRef != NONE) cinemas[cinemaRef].addHall(hall);
+                halls[i] = hall;
+            }
+        }
+
+        private void readScreening(CinemaChain chain, Cinema cinema) {
+            String id = readString();
+            Movie movie = movies[in.getInt()];
+            Hall hall = halls[in.getInt()];
+            PricingPolicy pricing = pricingPolicies[in.getInt()];
+            boolean vip = in.get() != 0;
+            boolean threeD = in.get() != 0;
+            LocalDateTime startTime = LocalDateTime.ofEpochSecond(in.getLong(), in.getInt(), ZoneOffset.UTC);
+            Duration ttl = Duration.ofMillis(in.getLong());
+
+            Screening screening = new Screening(id, movie, hall, vip, threeD, startTime, ttl, pricing);
+            cinema.addScreening(screening);
+
+            // rezerwacje jednego właściciela z tego samego momentu odtwarzamy jednym wywołaniem
+            Map<String, Map<Long, List<String>>> holdsByOwner = new LinkedHashMap<>();
+            int holdCount = in.getInt();
+            for (int i = 0; i < holdCount; i++) {
+                String seatCode = readString();
+                String ownerKey = readString();
+                long reservedAt = in.getLong();
+                holdsByOwner.computeIfAbsent(ownerKey, k -> new LinkedHashMap<>())
+                        .computeIfAbsent(reservedAt, k -> new ArrayList<>())
+                        .add(seatCode);
+            }
+            holdsByOwner.forEach((ownerKey, byTime) -> byTime.forEach((reservedAt, codes) ->
+                    screening.restoreReservation(ownerKey, reservedAt, codes.toArray(String[]::new))));
+
+            Map<Integer, List<Integer>> ticketsByOwner = new LinkedHashMap<>();
+            int ticketCount = in.getInt();
+            long[] ids = new long[ticketCount];
+            String[] seatCodes = new String[ticketCount];
+            boolean[] registered = new boolean[ticketCount];
+            for (int i = 0; i < ticketCount; i++) {
+                ids[i] = in.getLong();
+                seatCodes[i] = readString();
+                int ownerRef = in.getInt();
+                registered[i] = in.get() != 0;
+                ticketsByOwner.computeIfAbsent(ownerRef, k -> new ArrayList<>()).add(i);
+            }
+            ticketsByOwner.forEach((ownerRef, positions) -> {
+                long[] ownerIds = new long[positions.size()];
+                String[] ownerSeats = new String[positions.size()];
+                for (int i = 0; i < ownerIds.length; i++) {
+                    ownerIds[i] = ids[positions.get(i)];
+                    ownerSeats[i] = seatCodes[positions.get(i)];
+                }
+                Customer owner = (ownerRef == NONE) ? null : customers[ownerRef];
+                screening.restorePurchase(owner, ownerIds, ownerSeats);
+            });
+            for (int i = 0; i < ticketCount; i++) {
+                if (registered[i]) chain.addTicket(screening.findTicketById(ids[i]));
+            }
+
+            int soldCount = in.getInt();
+            if (soldCount > 0) {
+                String[] codes = new String[soldCount];
+                for (int i = 0; i < soldCount; i++) {
+                    codes[i] = readString();
+                }
+                screening.restoreSoldSeats(codes);
+            }
+        }
+
+        private BigDecimal readDecimal() {
+            int scale = in.getInt();
+            byte[] unscaled = new byte[in.get() & 0xFF];
+            in.get(unscaled);
+            return new BigDecimal(new BigInteger(unscaled), scale);
+        }
+
+        private String readString() {
+            int length = in.getInt();
+            if (length == NONE) return null;
+            byte[] bytes = new byte[length];
+            in.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
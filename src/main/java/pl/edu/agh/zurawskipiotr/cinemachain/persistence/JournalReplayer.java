@@ -0,0 +1,154 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.persistence;
+
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.chain.CinemaChain;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.customer.Customer;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.sales.Ticket;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.screening.Screening;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static pl.edu.agh.zurawskipiotr.cinemachain.persistence.BookingJournal.EXPIRED;
+import static pl.edu.agh.zurawskipiotr.cinemachain.persistence.BookingJournal.HEADER_SIZE;
+import static pl.edu.agh.zurawskipiotr.cinemachain.persistence.BookingJournal.PURCHASED;
+import static pl.edu.agh.zurawskipiotr.cinemachain.persistence.BookingJournal.PURCHASED_BATCH;
+import static pl.edu.agh.zurawskipiotr.cinemachain.persistence.BookingJournal.RESERVED;
+
+// Odtwarza stan rezerwacji i sprzedaży z dziennika. Zdarzenia dotyczące nieznanych seansów albo miejsc
+// są pomijane; zakup zawsze kończy się stanem SOLD, niezależnie od kolejności względem rezerwacji.
+final class JournalReplayer {
+
+    private static final System.Logger LOG = System.getLogger(JournalReplayer.class.getName());
+
+    private JournalReplayer() {
+    }
+
+    static int replay(Path file, CinemaChain chain) throws IOException {
+        if (!Files.exists(file)) return 0;
+
+        int applied = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = map(channel);
+            byte[] body;
+            while ((body = nextRecord(buffer)) != null) {
+                try {
+                    if (apply(new DataInputStream(new ByteArrayInputStream(body)), chain)) applied++;
+                } catch (IllegalArgumentException | IllegalStateException ex) {
+                    LOG.log(System.Logger.Level.WARNING, "Skipping booking journal record: " + ex.getMessage());
+                }
+            }
+        }
+        return applied;
+    }
+
+    static long validLength(FileChannel channel) throws IOException {
+        MappedByteBuffer buffer = map(channel);
+        while (nextRecord(buffer) != null) {
+            // tylko przesuwamy pozycję za ostatni poprawny rekord
+        }
+        return buffer.position();
+    }
+
+    private static MappedByteBuffer map(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Booking journal too large to map: " + size + " bytes");
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+
+    // zwraca treść rekordu albo null na końcu pliku lub na pierwszym urwanym/uszkodzonym rekordzie
+    private static byte[] nextRecord(MappedByteBuffer buffer) {
+        int start = buffer.position();
+        if (buffer.remaining() < HEADER_SIZE) return null;
+
+        int length = buffer.getInt();
+        int checksum = buffer.getInt();
+        if (length <= 0 || length > buffer.remaining()) {
+            buffer.position(start);
+            return null;
+        }
+
+        byte[] body = new byte[length];
+        buffer.get(body);
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        if ((int) crc.getValue() != checksum) {
+            buffer.position(start);
+            return null;
+        }
+        return body;
+    }
+
+    private static boolean apply(DataInputStream in, CinemaChain chain) throws IOException {
+        byte type = in.readByte();
+        if (type == PURCHASED_BATCH) {
+            Customer customer = readCustomer(in, chain);
+            int sections = in.readInt();
+            boolean applied = false;
+            for (int i = 0; i < sections; i++) {
+                Screening screening = chain.findScreeningById(in.readUTF());
+                applied |= applyPurchase(in, chain, screening, customer);
+            }
+            return applied;
+        }
+
+        Screening screening = chain.findScreeningById(in.readUTF());
+        if (screening == null) return false;
+
+        switch (type) {
+            case RESERVED -> {
+                String ownerKey = in.readUTF();
+                long reservedAtMillis = in.readLong();
+                screening.restoreReservation(ownerKey, reservedAtMillis, readCodes(in).toArray(String[]::new));
+            }
+            case EXPIRED -> {
+                String ownerKey = in.readUTF();
+                screening.restoreExpiry(ownerKey, readCodes(in).toArray(String[]::new));
+            }
+            case PURCHASED -> applyPurchase(in, chain, screening, readCustomer(in, chain));
+            default -> throw new IllegalStateException("Unknown booking journal record type: " + type);
+        }
+        return true;
+    }
+
+    private static Customer readCustomer(DataInputStream in, CinemaChain chain) throws IOException {
+        String customerId = in.readUTF();
+        return customerId.isEmpty() ? null : chain.getCustomers().get(customerId);
+    }
+
+    // sekcja nieznanego seansu jest czytana i pomijana, żeby nie zgubić pozycji w rekordzie zbiorczym
+    private static boolean applyPurchase(DataInputStream in, CinemaChain chain, Screening screeningOrNull, Customer customer) throws IOException {
+        int count = in.readInt();
+        long[] ticketIds = new long[count];
+        String[] seatCodes = new String[count];
+        for (int i = 0; i < count; i++) {
+            ticketIds[i] = in.readLong();
+            seatCodes[i] = in.readUTF();
+        }
+        if (screeningOrNull == null) return false;
+
+        for (Ticket ticket : screeningOrNull.restorePurchase(customer, ticketIds, seatCodes)) {
+            if (chain.findTicketById(ticket.getId()) == null) chain.addTicket(ticket);
+        }
+        return true;
+    }
+
+    private static List<String> readCodes(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<String> codes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            codes.add(in.readUTF());
+        }
+        return codes;
+    }
+}
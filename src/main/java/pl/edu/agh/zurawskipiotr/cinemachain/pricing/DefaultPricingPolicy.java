@@ -5,10 +5,19 @@ import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.SeatCategory;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.Collections;
 import java.util.EnumMap;
 import java.util.Map;
+import java.util.Objects;
 
-public class DefaultPricingPolicy implements PricingPolicy {
+public class DefaultPricingPolicy implements PricingPolicy, MinorUnitPricingPolicy {
+
+    private static final SeatCategory[] CATEGORIES = SeatCategory.values();
+    private static final long NO_PRICE = Long.MIN_VALUE;
+
+    // cena zależy tylko od kategorii x VIP x 3D, więc cała macierz jest liczona raz w konstruktorze
+    private final BigDecimal[] prices;
+    private final long[] minorPrices;
 
     private final Map<SeatCategory, BigDecimal> basePrices;
     private final BigDecimal threeDSurcharge;
@@ -19,9 +28,36 @@ public class DefaultPricingPolicy implements PricingPolicy {
             BigDecimal threeDSurcharge,
             BigDecimal vipScreeningSurcharge
     ) {
-        this.basePrices = new EnumMap<>(basePrices);
+        Map<SeatCategory, BigDecimal> bases = new EnumMap<>(basePrices);
+        Objects.requireNonNull(threeDSurcharge, "threeDSurcharge");
+        Objects.requireNonNull(vipScreeningSurcharge, "vipScreeningSurcharge");
+        this.basePrices = Collections.unmodifiableMap(bases);
         this.threeDSurcharge = threeDSurcharge;
         this.vipScreeningSurcharge = vipScreeningSurcharge;
+
+        this.prices = new BigDecimal[CATEGORIES.length * 4];
+        this.minorPrices = new long[CATEGORIES.length * 4];
+        for (SeatCategory category : CATEGORIES) {
+            BigDecimal base = bases.get(category);
+            for (int flags = 0; flags < 4; flags++) {
+                int slot = slot(category, (flags & 2) != 0, (flags & 1) != 0);
+                if (base == null) {
+                    minorPrices[slot] = NO_PRICE;
+                    continue;
+                }
+
+                BigDecimal price = base;
+                if ((flags & 1) != 0) {
+                    price = price.add(threeDSurcharge);
+                }
+                if ((flags & 2) != 0) {
+                    price = price.add(vipScreeningSurcharge);
+                }
+
+                prices[slot] = price.setScale(2, RoundingMode.HALF_UP);
+                minorPrices[slot] = MinorUnitPricingPolicy.toMinorUnits(prices[slot]);
+            }
+        }
     }
 
     public static DefaultPricingPolicy defaultPolicy() {
@@ -39,22 +75,41 @@ public class DefaultPricingPolicy implements PricingPolicy {
         );
     }
 
+    public Map<SeatCategory, BigDecimal> getBasePrices() {
+        return basePrices;
+    }
+
+    public BigDecimal getThreeDSurcharge() {
+        return threeDSurcharge;
+    }
+
+    public BigDecimal getVipScreeningSurcharge() {
+        return vipScreeningSurcharge;
+    }
+
     @Override
     public BigDecimal calculatePrice(Seat seat, boolean vipScreening, boolean threeD) {
-        BigDecimal price = basePrices.get(seat.category());
+        BigDecimal price = prices[slot(seat.category(), vipScreening, threeD)];
 
         if (price == null) {
             throw new IllegalStateException("No base price for category: " + seat.category());
         }
 
-        if (threeD) {
-            price = price.add(threeDSurcharge);
-        }
+        return price;
+    }
 
-        if (vipScreening) {
-            price = price.add(vipScreeningSurcharge);
+    @Override
+    public long calculatePriceMinor(Seat seat, boolean vipScreening, boolean threeD) {
+        long price = minorPrices[slot(seat.category(), vipScreening, threeD)];
+
+        if (price == NO_PRICE) {
+            throw new IllegalStateException("No base price for category: " + seat.category());
         }
 
-        return price.setScale(2, RoundingMode.HALF_UP);
+        return price;
+    }
+
+    private static int slot(SeatCategory category, boolean vipScreening, boolean threeD) {
+        return (category.ordinal() << 2) | (vipScreening ? 2 : 0) | (threeD ? 1 : 0);
     }
 }
@@ -0,0 +1,27 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.pricing;
+
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.Seat;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Cena w groszach (jednostkach podrzędnych) jako long - sumowanie koszyka bez alokacji.
+public interface MinorUnitPricingPolicy {
+
+    int SCALE = 2;
+
+    long calculatePriceMinor(Seat seat, boolean vipScreening, boolean threeD);
+
+    static MinorUnitPricingPolicy adapt(PricingPolicy policy) {
+        if (policy instanceof MinorUnitPricingPolicy minorUnits) return minorUnits;
+        return (seat, vipScreening, threeD) -> toMinorUnits(policy.calculatePrice(seat, vipScreening, threeD));
+    }
+
+    static long toMinorUnits(BigDecimal amount) {
+        return amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    static BigDecimal fromMinorUnits(long amount) {
+        return BigDecimal.valueOf(amount, SCALE);
+    }
+}
@@ -0,0 +1,94 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.runtime;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+// Pętla zdarzeń jednego kina: jeden wątek wykonuje po kolei zadania z kolejki (wielu producentów, jeden konsument).
+// Wątek usypia tylko przy pustej kolejce, a producent budzi go wyłącznie wtedy, gdy naprawdę śpi.
+// Zadania same kończą swoje future; wyjątek, który mimo to wyjdzie z zadania, trafia do logu i nie zatrzymuje pętli.
+final class CinemaEventLoop implements Executor {
+
+    private static final System.Logger LOG = System.getLogger(CinemaEventLoop.class.getName());
+
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean parked = new AtomicBoolean();
+    private final Thread thread;
+    private volatile boolean shutdown;
+
+    CinemaEventLoop(String name) {
+        this.thread = new Thread(this::run, name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (shutdown) {
+            throw new RejectedExecutionException("Event loop is shut down: " + thread.getName());
+        }
+        tasks.add(task);
+        // zamknięcie mogło opróżnić kolejkę między sprawdzeniem flagi a dodaniem zadania; jeśli zadanie nadal
+        // w niej jest, nikt go już nie wykona. Gdy remove się nie uda, zadanie wzięła pętla albo wątek zamykający
+        if (shutdown && tasks.remove(task)) {
+            throw new RejectedExecutionException("Event loop is shut down: " + thread.getName());
+        }
+        if (parked.get() && parked.compareAndSet(true, false)) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    boolean inEventLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    // zadania dodane w wyścigu z zamknięciem wykonuje wątek zamykający, żeby żaden future nie wisiał
+    void shutdown() {
+        shutdown = true;
+        LockSupport.unpark(thread);
+
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            runTask(task);
+        }
+    }
+
+    private void run() {
+        while (true) {
+            Runnable task = tasks.poll();
+            if (task != null) {
+                runTask(task);
+                continue;
+            }
+            if (shutdown) return;
+
+            // najpierw flaga, potem ponowne sprawdzenie kolejki: producent albo zobaczy flagę, albo my jego zadanie
+            parked.set(true);
+            if (tasks.isEmpty() && !shutdown) {
+                LockSupport.park(this);
+            }
+            parked.set(false);
+        }
+    }
+
+    private static void runTask(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException ex) {
+            LOG.log(System.Logger.Level.ERROR, "Cinema event loop task failed", ex);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.runtime;
+
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.booking.SeatBlockReservation;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.chain.CinemaChain;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.customer.Customer;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.sales.TicketOrder;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.sales.TicketPurchase;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.screening.Screening;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.Cinema;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.SeatCategory;
+import pl.edu.agh.zurawskipiotr.cinemachain.persistence.BookingJournal;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+// Wykonanie podzielone na kina: każde kino (z seansami) ma własną pętlę zdarzeń z jednym wątkiem,
+// a operacje przychodzą do niej jako komunikaty i zwracają CompletableFuture.
+// Operacje jednego kina przez runtime nie rywalizują ze sobą, a kina pracują niezależnie, więc przepustowość rośnie
+// z liczbą rdzeni, dopóki ruch rozkłada się na kina. Rejestry sieci (klienci, bilety, kina) są współbieżne.
+// Wyjątkiem jest zakup zbiorczy obejmujący kilka kin: wykonuje go pętla kina pierwszej pozycji, także na planach
+// pozostałych kin, więc plan kina nie ma jednego piszącego wątku.
+//
+// Pętla nie czeka na fsync dziennika: zmiana w pamięci jest zapisywana do dziennika, a future kończy się
+// dopiero, gdy wpis jest trwały (BookingJournal.whenDurable), więc w tym czasie pętla obsługuje kolejne żądania.
+// Blokady planów miejsc zostają: chronią plan przed kołem wygasania rezerwacji, zakupami zbiorczymi z innych pętli
+// i bezpośrednim API, a przy ruchu w obrębie jednego kina są niemal zawsze wolne.
+public final class ShardedBookingRuntime implements AutoCloseable {
+
+    private final CinemaChain chain;
+    private final Map<String, CinemaEventLoop> loops = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    public ShardedBookingRuntime(CinemaChain chain) {
+        this.chain = Objects.requireNonNull(chain, "chain");
+        for (Cinema cinema : chain.getCinemas().values()) {
+            loopFor(cinema);
+        }
+    }
+
+    public <T> CompletableFuture<T> submit(Cinema cinema, Supplier<T> action) {
+        Objects.requireNonNull(cinema, "cinema");
+        Objects.requireNonNull(action, "action");
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        loopFor(cinema).execute(() -> runInLoop(action, result));
+        return result;
+    }
+
+    public CompletableFuture<Void> reservePlaces(Screening screening, Customer customer, String... seatCodes) {
+        return submit(cinemaOf(screening), () -> {
+            screening.reservePlaces(customer, seatCodes);
+            return null;
+        });
+    }
+
+    public CompletableFuture<String> reservePlaces(Screening screening, String... seatCodes) {
+        return submit(cinemaOf(screening), () -> screening.reservePlaces(seatCodes));
+    }
+
+    public CompletableFuture<List<String>> reserveBestAvailable(Screening screening, Customer customer, int partySize, SeatCategory categoryOrNull) {
+        return submit(cinemaOf(screening), () -> screening.reserveBestAvailable(customer, partySize, categoryOrNull));
+    }
+
+    public CompletableFuture<SeatBlockReservation> reserveBestAvailable(Screening screening, int partySize, SeatCategory categoryOrNull) {
+        return submit(cinemaOf(screening), () -> screening.reserveBestAvailable(partySize, categoryOrNull));
+    }
+
+    public CompletableFuture<List<TicketPurchase>> buyTickets(Screening screening, Customer customer, String... seatCodes) {
+        return submit(cinemaOf(screening), () -> chain.buyTickets(screening, customer, seatCodes));
+    }
+
+    public CompletableFuture<List<TicketPurchase>> buyTicketsAsGuest(Screening screening, String... seatCodes) {
+        return submit(cinemaOf(screening), () -> chain.buyTicketsAsGuest(screening, seatCodes));
+    }
+
+    public CompletableFuture<List<TicketPurchase>> buyTicketsWithToken(Screening screening, String token, String... seatCodes) {
+        return submit(cinemaOf(screening), () -> chain.buyTicketsWithToken(screening, token, seatCodes));
+    }
+
+    // partia obejmująca kilka kin trafia jako komunikat do pętli kina pierwszej pozycji, która zmienia też plany
+    // pozostałych kin; chronią je blokady planów brane w globalnej kolejności, więc partia nadal jest "wszystko
+    // albo nic", ale nie jest kierowana do pętli każdego kina
+    public CompletableFuture<List<TicketPurchase>> buyTicketsBatch(Customer customerOrNull, List<TicketOrder> orders) {
+        Objects.requireNonNull(orders, "orders");
+        if (orders.isEmpty()) {
+            throw new IllegalArgumentException("No ticket orders provided");
+        }
+        Cinema home = cinemaOf(orders.get(0).screening());
+        return submit(home, () -> (customerOrNull == null)
+                ? chain.buyTicketsBatchAsGuest(orders)
+                : chain.buyTicketsBatch(customerOrNull, orders));
+    }
+
+    public int shardCount() {
+        return loops.size();
+    }
+
+    @Override
+    public void close() {
+        List<CinemaEventLoop> toShutDown;
+        synchronized (loops) {
+            closed = true;
+            toShutDown = List.copyOf(loops.values());
+        }
+        for (CinemaEventLoop loop : toShutDown) {
+            loop.shutdown();
+        }
+    }
+
+    // błąd akcji albo zapisu dziennika kończy future zadania, więc z pętli nic nie wychodzi
+    private <T> void runInLoop(Supplier<T> action, CompletableFuture<T> result) {
+        T value;
+        BookingJournal.beginDeferred();
+        try {
+            value = action.get();
+        } catch (RuntimeException ex) {
+            BookingJournal.endDeferred();
+            result.completeExceptionally(ex);
+            return;
+        }
+
+        long sequence = BookingJournal.endDeferred();
+        BookingJournal journal = chain.getJournal();
+        if (sequence == 0L || journal == null) {
+            result.complete(value);
+            return;
+        }
+        journal.whenDurable(sequence).whenComplete((ignored, failure) -> {
+            if (failure != null) result.completeExceptionally(failure);
+            else result.complete(value);
+        });
+    }
+
+    // pętle powstają pod monitorem mapy, który bierze też close(), więc po zamknięciu żadna nowa pętla nie powstanie
+    private CinemaEventLoop loopFor(Cinema cinema) {
+        checkOpen();
+        CinemaEventLoop loop = loops.get(cinema.getId());
+        if (loop != null) return loop;
+
+        synchronized (loops) {
+            checkOpen();
+            return loops.computeIfAbsent(cinema.getId(), id -> new CinemaEventLoop("cinema-" + id));
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new RejectedExecutionException("Sharded booking runtime is closed");
+        }
+    }
+
+    private static Cinema cinemaOf(Screening screening) {
+        Objects.requireNonNull(screening, "screening");
+        Cinema cinema = screening.getCinema();
+        if (cinema == null) {
+            throw new IllegalArgumentException("Screening hall is not registered in any cinema");
+        }
+        return cinema;
+    }
+}
@@ -0,0 +1,434 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.booking.SeatBlockReservation;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.chain.CinemaChain;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.customer.Customer;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.sales.TicketPurchase;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.screening.Screening;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.screening.SeatStatus;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.SeatCategory;
+import pl.edu.agh.zurawskipiotr.cinemachain.monitoring.OccupancyMonitor;
+import pl.edu.agh.zurawskipiotr.cinemachain.persistence.ChainSnapshot;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Serwer rezerwacji na com.sun.net.httpserver: każde żądanie obsługuje osobny wątek wirtualny,
+// więc czekanie na fsync dziennika albo na blokady miejsc nie zajmuje wątków platformy.
+//
+//   GET  /programme?from=2025-01-01T00:00&to=2025-01-08T00:00      repertuar całej sieci
+//   GET  /screenings/{id}/seats[?format=packed]                     mapa miejsc
+//   POST /screenings/{id}/reservations  seats=A1,A2 | best=N[&category=VIP]  [&customer=id]
+//   DELETE /screenings/{id}/reservations?seats=A1,A2&customer=id | &token=t     anulowanie rezerwacji
+//   POST /screenings/{id}/waitlist      best=N[&category=VIP]  [&customer=id]  [&wait=sekundy]
+//   POST /screenings/{id}/purchases     seats=A1,A2  [&customer=id | &token=t]
+//
+// waitlist czeka (domyślnie 30 s) na miejsca zwolnione przez wygaśnięcie albo anulowanie innej rezerwacji
+// i odpowiada jak rezerwacja; po czasie oczekujący wypada z kolejki i dostaje 409.
+//
+// Parametry w zapytaniu albo w treści application/x-www-form-urlencoded. Błędy:
+// 400 (IllegalArgumentException), 404 (nieznany seans/klient), 409 (IllegalStateException, np. zajęte miejsce).
+public final class BookingServer implements AutoCloseable {
+
+    private static final int DEFAULT_PORT = 8080;
+    private static final int BACKLOG = 1024;
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final int DEFAULT_WAIT_SECONDS = 30;
+    private static final int MAX_WAIT_SECONDS = 300;
+
+    private final CinemaChain chain;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private BookingServer(CinemaChain chain, HttpServer server, ExecutorService executor) {
+        this.chain = chain;
+        this.server = server;
+        this.executor = executor;
+    }
+
+    public static BookingServer start(CinemaChain chain, InetSocketAddress address) throws IOException {
+        Objects.requireNonNull(chain, "chain");
+        Objects.requireNonNull(address, "address");
+
+        // nagłówki i treść odpowiedzi to osobne zapisy; bez TCP_NODELAY drugi czeka na opóźnione ACK (~40 ms).
+        // Właściwość jest czytana przy tworzeniu pierwszego serwera, więc ustawienie z linii poleceń ma pierwszeństwo
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        HttpServer server = HttpServer.create(address, BACKLOG);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+
+        BookingServer bookingServer = new BookingServer(chain, server, executor);
+        server.createContext("/programme", exchange -> bookingServer.handle(exchange, bookingServer::programme));
+        server.createContext("/screenings/", exchange -> bookingServer.handle(exchange, bookingServer::screening));
+        server.start();
+        return bookingServer;
+    }
+
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+
+    // java ... BookingServer [port] [plik zrzutu sieci]
+    public static void main(String[] args) throws IOException {
+        int port = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        CinemaChain chain = (args.length > 1)
+                ? ChainSnapshot.read(Path.of(args[1]))
+                : DemoChain.build(4, 4, 1000);
+
+        OccupancyMonitor.register(chain);
+        BookingServer server = start(chain, new InetSocketAddress(port));
+        System.out.println("Booking server listening on " + server.getAddress());
+    }
+
+    private JsonWriter programme(HttpExchange exchange, Map<String, String> params) {
+        requireMethod(exchange, "GET");
+
+        LocalDateTime from = parseTime(params.get("from"), LocalDate.now().atStartOfDay());
+        LocalDateTime to = parseTime(params.get("to"), from.plusDays(7));
+
+        JsonWriter json = new JsonWriter().beginArray();
+        for (Screening s : chain.getScreeningsBetween(from, to)) {
+            json.beginObject()
+                    .name("id").value(s.getId())
+                    .name("cinema").value(s.getCinema() == null ? null : s.getCinema().getName())
+                    .name("hall").value(s.getHall().getName())
+                    .name("movie").value(s.getMovie().title())
+                    .name("start").value(s.getStartTime().toString())
+                    .name("vip").value(s.isVip())
+                    .name("threeD").value(s.isThreeD())
+                    .endObject();
+        }
+        return json.endArray();
+    }
+
+    private JsonWriter screening(HttpExchange exchange, Map<String, String> params) {
+        // /screenings/{id}/{zasób}
+        String[] parts = exchange.getRequestURI().getPath().split("/");
+        if (parts.length != 4) throw new NotFoundException("No such resource: " + exchange.getRequestURI().getPath());
+
+        Screening screening = chain.findScreeningById(parts[2]);
+        if (screening == null) throw new NotFoundException("No such screening: " + parts[2]);
+
+        return switch (parts[3]) {
+            case "seats" -> seats(exchange, screening, params);
+            case "reservations" -> "DELETE".equals(exchange.getRequestMethod())
+                    ? release(screening, params)
+                    : reserve(exchange, screening, params);
+            case "waitlist" -> waitlist(exchange, screening, params);
+            case "purchases" -> purchase(exchange, screening, params);
+            default -> throw new NotFoundException("No such resource: " + parts[3]);
+        };
+    }
+
+    private JsonWriter seats(HttpExchange exchange, Screening screening, Map<String, String> params) {
+        requireMethod(exchange, "GET");
+
+        // format=packed: stany po 2 bity (0 FREE, 1 RESERVED, 2 SOLD) w kolejności miejsc z pełnej mapy, w Base64
+        if ("packed".equals(params.get("format"))) {
+            return new JsonWriter().beginObject()
+                    .name("screening").value(screening.getId())
+                    .name("status").value(Base64.getEncoder().encodeToString(screening.encodeSeatStatuses()))
+                    .endObject();
+        }
+
+        JsonWriter json = new JsonWriter().beginObject()
+                .name("screening").value(screening.getId())
+                .name("seats").beginObject();
+        for (Map.Entry<String, SeatStatus> entry : screening.seatStatus().entrySet()) {
+            json.name(entry.getKey()).value(entry.getValue().name());
+        }
+        return json.endObject().endObject();
+    }
+
+    private JsonWriter reserve(HttpExchange exchange, Screening screening, Map<String, String> params) {
+        requireMethod(exchange, "POST");
+
+        Customer customer = customerOrNull(params);
+        String token = null;
+        List<String> seats;
+
+        String best = params.get("best");
+        if (best != null) {
+            int partySize = parseInt(best, "best");
+            SeatCategory category = parseCategory(params.get("category"));
+            if (customer != null) {
+                seats = screening.reserveBestAvailable(customer, partySize, category);
+            } else {
+                SeatBlockReservation block = screening.reserveBestAvailable(partySize, category);
+                token = block.reservationToken();
+                seats = block.seatCodes();
+            }
+        } else {
+            String[] codes = seatCodes(params);
+            if (customer != null) {
+                screening.reservePlaces(customer, codes);
+            } else {
+                token = screening.reservePlaces(codes);
+            }
+            seats = List.of(codes);
+        }
+        return reservation(screening, token, seats);
+    }
+
+    private JsonWriter release(Screening screening, Map<String, String> params) {
+        String[] codes = seatCodes(params);
+        Customer customer = customerOrNull(params);
+        String token = params.get("token");
+
+        List<String> released;
+        if (customer != null) {
+            released = screening.releasePlaces(customer, codes);
+        } else if (token != null) {
+            released = screening.releasePlacesForToken(token, codes);
+        } else {
+            throw new IllegalArgumentException("customer or token is required");
+        }
+        return reservation(screening, null, released);
+    }
+
+    private JsonWriter waitlist(HttpExchange exchange, Screening screening, Map<String, String> params) {
+        requireMethod(exchange, "POST");
+
+        Customer customer = customerOrNull(params);
+        String best = params.get("best");
+        if (best == null) throw new IllegalArgumentException("Party size (best) is required");
+        int partySize = parseInt(best, "best");
+        SeatCategory category = parseCategory(params.get("category"));
+        String wait = params.get("wait");
+        int waitSeconds = (wait == null) ? DEFAULT_WAIT_SECONDS : parseInt(wait, "wait");
+        if (waitSeconds < 0 || waitSeconds > MAX_WAIT_SECONDS) {
+            throw new IllegalArgumentException("Invalid wait: " + wait);
+        }
+
+        if (customer != null) {
+            return reservation(screening, null, await(screening.joinWaitlist(customer, partySize, category), waitSeconds));
+        }
+        SeatBlockReservation block = await(screening.joinWaitlist(partySize, category), waitSeconds);
+        return reservation(screening, block.reservationToken(), block.seatCodes());
+    }
+
+    // wątek żądania jest wirtualny, więc czekanie na zwolnione miejsca nie zajmuje wątku platformy
+    private static <T> T await(CompletableFuture<T> offer, int waitSeconds) {
+        try {
+            return offer.get(waitSeconds, TimeUnit.SECONDS);
+        } catch (TimeoutException ex) {
+            // miejsca mogły zostać przydzielone tuż przed anulowaniem
+            if (offer.cancel(false)) {
+                throw new IllegalStateException("No seats released within " + waitSeconds + "s");
+            }
+            return offer.join();
+        } catch (InterruptedException ex) {
+            offer.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for seats");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) throw cause;
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    private static JsonWriter reservation(Screening screening, String tokenOrNull, List<String> seats) {
+        JsonWriter json = new JsonWriter().beginObject().name("screening").value(screening.getId());
+        if (tokenOrNull != null) json.name("token").value(tokenOrNull);
+        json.name("seats").beginArray();
+        for (String seat : seats) {
+            json.value(seat);
+        }
+        return json.endArray().endObject();
+    }
+
+    private JsonWriter purchase(HttpExchange exchange, Screening screening, Map<String, String> params) {
+        requireMethod(exchange, "POST");
+
+        String[] codes = seatCodes(params);
+        Customer customer = customerOrNull(params);
+        String token = params.get("token");
+
+        List<TicketPurchase> purchases;
+        if (customer != null) {
+            purchases = chain.buyTickets(screening, customer, codes);
+        } else if (token != null) {
+            purchases = chain.buyTicketsWithToken(screening, token, codes);
+        } else {
+            purchases = chain.buyTicketsAsGuest(screening, codes);
+        }
+
+        BigDecimal total = BigDecimal.ZERO;
+        JsonWriter json = new JsonWriter().beginObject()
+                .name("screening").value(screening.getId())
+                .name("tickets").beginArray();
+        for (TicketPurchase purchase : purchases) {
+            total = total.add(purchase.price());
+            json.beginObject()
+                    .name("code").value(purchase.ticket().getCode())
+                    .name("seat").value(purchase.ticket().getSeat().getCode())
+                    .name("price").rawNumber(purchase.price().toPlainString())
+                    .endObject();
+        }
+        return json.endArray().name("total").rawNumber(total.toPlainString()).endObject();
+    }
+
+    private void handle(HttpExchange exchange, Endpoint endpoint) throws IOException {
+        int status;
+        byte[] body;
+        try {
+            body = endpoint.respond(exchange, params(exchange)).toBytes();
+            status = 200;
+        } catch (NotFoundException ex) {
+            status = 404;
+            body = error(ex);
+        } catch (MethodNotAllowedException ex) {
+            status = 405;
+            body = error(ex);
+        } catch (IllegalArgumentException ex) {
+            status = 400;
+            body = error(ex);
+        } catch (IllegalStateException ex) {
+            status = 409;
+            body = error(ex);
+        } catch (RuntimeException ex) {
+            status = 500;
+            body = error(ex);
+        }
+
+        try (exchange) {
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private Customer customerOrNull(Map<String, String> params) {
+        String customerId = params.get("customer");
+        if (customerId == null) return null;
+
+        Customer customer = chain.getCustomers().get(customerId);
+        if (customer == null) throw new NotFoundException("No such customer: " + customerId);
+        return customer;
+    }
+
+    private static Map<String, String> params(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        parseForm(exchange.getRequestURI().getRawQuery(), params);
+
+        if ("POST".equals(exchange.getRequestMethod())) {
+            try (InputStream in = exchange.getRequestBody()) {
+                byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+                if (body.length > MAX_BODY_BYTES) {
+                    throw new IllegalArgumentException("Request body too large");
+                }
+                parseForm(new String(body, StandardCharsets.UTF_8), params);
+            }
+        }
+        return params;
+    }
+
+    private static void parseForm(String form, Map<String, String> target) {
+        if (form == null || form.isEmpty()) return;
+        for (String pair : form.split("&")) {
+            if (pair.isEmpty()) continue;
+            int eq = pair.indexOf('=');
+            String name = URLDecoder.decode((eq < 0) ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = (eq < 0) ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            target.put(name, value);
+        }
+    }
+
+    private static String[] seatCodes(Map<String, String> params) {
+        String seats = params.get("seats");
+        if (seats == null || seats.isBlank()) {
+            throw new IllegalArgumentException("No seat codes provided");
+        }
+        return seats.split(",");
+    }
+
+    private static int parseInt(String value, String name) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + value);
+        }
+    }
+
+    private static SeatCategory parseCategory(String value) {
+        if (value == null || value.isBlank()) return null;
+        try {
+            return SeatCategory.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid category: " + value);
+        }
+    }
+
+    private static LocalDateTime parseTime(String value, LocalDateTime defaultValue) {
+        if (value == null || value.isBlank()) return defaultValue;
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException ex) {
+            throw new IllegalArgumentException("Invalid date-time: " + value);
+        }
+    }
+
+    private static void requireMethod(HttpExchange exchange, String method) {
+        if (!method.equals(exchange.getRequestMethod())) {
+            throw new MethodNotAllowedException("Method not allowed: " + exchange.getRequestMethod());
+        }
+    }
+
+    private static byte[] error(RuntimeException ex) {
+        return new JsonWriter().beginObject().name("error").value(String.valueOf(ex.getMessage())).endObject().toBytes();
+    }
+
+    @FunctionalInterface
+    private interface Endpoint {
+        JsonWriter respond(HttpExchange exchange, Map<String, String> params);
+    }
+
+    private static final class NotFoundException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private NotFoundException(String message) {
+            super(message);
+        }
+    }
+
+    private static final class MethodNotAllowedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private MethodNotAllowedException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.server;
+
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.catalog.Genre;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.catalog.Movie;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.chain.CinemaChain;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.customer.Customer;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.screening.Screening;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.Cinema;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.Hall;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.Seat;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.SeatCategory;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Przykładowa sieć do uruchomienia serwera bez zrzutu i do testów obciążeniowych:
+// kilka kin po kilka sal, tydzień repertuaru od dzisiaj.
+public final class DemoChain {
+
+    private static final int ROWS = 12;
+    private static final int SEATS_PER_ROW = 20;
+    private static final int SCREENINGS_PER_DAY = 5;
+    private static final int DAYS = 7;
+
+    private DemoChain() {
+    }
+
+    public static CinemaChain build(int cinemaCount, int hallsPerCinema, int customerCount) {
+        CinemaChain chain = new CinemaChain("Multikino");
+
+        List<Movie> movies = List.of(
+                new Movie("Avatar: Istota Wody", 162, List.of(Genre.SCI_FI), 12),
+                new Movie("Diuna: Część II", 166, List.of(Genre.SCI_FI), 12),
+                new Movie("Życzenie", 95, List.of(Genre.ANIMATION, Genre.FAMILY), 0),
+                new Movie("Oppenheimer", 180, List.of(Genre.DRAMA), 16)
+        );
+        for (Movie movie : movies) {
+            chain.addMovie(movie);
+        }
+
+        LocalDate today = LocalDate.now();
+        int serial = 0;
+        for (int c = 0; c < cinemaCount; c++) {
+            Cinema cinema = new Cinema("Kino " + (c + 1), "ul. Przykładowa " + (c + 1));
+            chain.addCinema(cinema);
+
+            for (int h = 0; h < hallsPerCinema; h++) {
+                Hall hall = newHall("Sala " + (h + 1));
+                cinema.addHall(hall);
+
+                for (int d = 0; d < DAYS; d++) {
+                    for (int s = 0; s < SCREENINGS_PER_DAY; s++) {
+                        LocalDateTime start = today.plusDays(d).atTime(10 + 3 * s, 15 * h % 60);
+                        Screening screening = new Screening(
+                                movies.get(serial++ % movies.size()),
+                                hall,
+                                s == SCREENINGS_PER_DAY - 1,
+                                h == 0,
+                                start
+                        );
+                        cinema.addScreening(screening);
+                    }
+                }
+            }
+        }
+
+        for (int i = 0; i < customerCount; i++) {
+            chain.registerCustomer(new Customer("Jan" + i, "Kowalski" + i, "jan.kowalski" + i + "@mail.com"));
+        }
+        return chain;
+    }
+
+    private static Hall newHall(String name) {
+        Hall hall = new Hall(name);
+        for (int r = 0; r < ROWS; r++) {
+            String row = String.valueOf((char) ('A' + r));
+            SeatCategory category = (r >= ROWS - 2) ? SeatCategory.VIP : SeatCategory.STANDARD;
+            for (int n = 1; n <= SEATS_PER_ROW; n++) {
+                hall.addSeat(new Seat(row, n, category));
+            }
+        }
+        return hall;
+    }
+}
@@ -0,0 +1,108 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.server;
+
+import java.nio.charset.StandardCharsets;
+
+// Minimalny zapis JSON do StringBuildera (serwer nie ma zależności poza JDK).
+// Przecinki wstawiane są automatycznie: first mówi, czy w bieżącym obiekcie/tablicy nic jeszcze nie zapisano.
+final class JsonWriter {
+
+    private final StringBuilder out = new StringBuilder(256);
+    private boolean first = true;
+
+    JsonWriter beginObject() {
+        separator();
+        out.append('{');
+        first = true;
+        return this;
+    }
+
+    JsonWriter endObject() {
+        out.append('}');
+        first = false;
+        return this;
+    }
+
+    JsonWriter beginArray() {
+        separator();
+        out.append('[');
+        first = true;
+        return this;
+    }
+
+    JsonWriter endArray() {
+        out.append(']');
+        first = false;
+        return this;
+    }
+
+    JsonWriter name(String name) {
+        separator();
+        string(name);
+        out.append(':');
+        first = true;
+        return this;
+    }
+
+    JsonWriter value(String value) {
+        separator();
+        if (value == null) out.append("null");
+        else string(value);
+        first = false;
+        return this;
+    }
+
+    JsonWriter value(long value) {
+        separator();
+        out.append(value);
+        first = false;
+        return this;
+    }
+
+    JsonWriter value(boolean value) {
+        separator();
+        out.append(value);
+        first = false;
+        return this;
+    }
+
+    // liczba zapisana dosłownie (np. BigDecimal.toPlainString())
+    JsonWriter rawNumber(String number) {
+        separator();
+        out.append(number);
+        first = false;
+        return this;
+    }
+
+    byte[] toBytes() {
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+
+    private void separator() {
+        if (!first) out.append(',');
+        first = false;
+    }
+
+    private void string(String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) out.append(String.format("\\u%04x", (int) c));
+                    else out.append(c);
+                }
+            }
+        }
+        out.append('"');
+    }
+}
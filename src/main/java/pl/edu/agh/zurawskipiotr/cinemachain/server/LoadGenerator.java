@@ -0,0 +1,235 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Lokalny generator obciążenia dla BookingServer: N klientów (wątki wirtualne) w zamkniętej pętli
+// wysyła mieszankę żądań, a na końcu wypisuje przepustowość i percentyle opóźnień dla każdego typu żądania.
+// Bez --url uruchamia serwer z DemoChain w tym samym procesie.
+//
+//   java ... LoadGenerator [--url http://host:8080] [--clients 256] [--seconds 20] [--warmup 5]
+public final class LoadGenerator {
+
+    private static final Pattern ID = Pattern.compile("\"id\":\"([^\"]+)\"");
+    private static final Pattern TOKEN = Pattern.compile("\"token\":\"([^\"]+)\"");
+    private static final Pattern SEATS = Pattern.compile("\"seats\":\\[([^\\]]*)\\]");
+
+    // mieszanka żądań w procentach; rezerwacja z zakupem to dwa żądania (rezerwacja i zakup z tokenem)
+    private static final int PROGRAMME_PERCENT = 20;
+    private static final int SEAT_MAP_PERCENT = 40;
+    private static final int RESERVE_PERCENT = 20;
+
+    private enum Operation { PROGRAMME, SEAT_MAP, RESERVE, PURCHASE }
+
+    private final HttpClient client;
+    private final URI base;
+    private final List<String> screeningIds;
+
+    private LoadGenerator(HttpClient client, URI base, List<String> screeningIds) {
+        this.client = client;
+        this.base = base;
+        this.screeningIds = screeningIds;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String url = null;
+        int clients = 256;
+        int seconds = 20;
+        int warmupSeconds = 5;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--url" -> url = args[i + 1];
+                case "--clients" -> clients = Integer.parseInt(args[i + 1]);
+                case "--seconds" -> seconds = Integer.parseInt(args[i + 1]);
+                case "--warmup" -> warmupSeconds = Integer.parseInt(args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        BookingServer local = null;
+        if (url == null) {
+            local = BookingServer.start(DemoChain.build(4, 4, 1000), new InetSocketAddress("127.0.0.1", 0));
+            url = "http://127.0.0.1:" + local.getAddress().getPort();
+            System.out.println("Started local booking server on " + url);
+        }
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient client = HttpClient.newBuilder()
+                    .executor(executor)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .build();
+            LoadGenerator generator = new LoadGenerator(client, URI.create(url), List.of());
+            List<String> screeningIds = generator.fetchScreeningIds();
+            if (screeningIds.isEmpty()) {
+                throw new IllegalStateException("Server has no screenings in the next 7 days");
+            }
+
+            generator = new LoadGenerator(client, URI.create(url), screeningIds);
+            System.out.println("Screenings: " + screeningIds.size() + " | clients: " + clients
+                    + " | warmup: " + warmupSeconds + "s | measurement: " + seconds + "s");
+
+            generator.run(executor, clients, Duration.ofSeconds(warmupSeconds), null);
+            Stats[] stats = newStats();
+            long started = System.nanoTime();
+            generator.run(executor, clients, Duration.ofSeconds(seconds), stats);
+            report(stats, System.nanoTime() - started);
+        } finally {
+            if (local != null) local.close();
+        }
+    }
+
+    private List<String> fetchScreeningIds() throws IOException, InterruptedException {
+        LocalDate today = LocalDate.now();
+        HttpResponse<String> response = send(HttpRequest.newBuilder(base.resolve(
+                "/programme?from=" + today.atStartOfDay() + "&to=" + today.plusDays(7).atStartOfDay())).GET().build());
+        List<String> ids = new ArrayList<>();
+        Matcher m = ID.matcher(response.body());
+        while (m.find()) {
+            ids.add(m.group(1));
+        }
+        return ids;
+    }
+
+    private void run(ExecutorService executor, int clients, Duration duration, Stats[] statsOrNull) throws Exception {
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Future<Stats[]>> futures = new ArrayList<>(clients);
+        for (int c = 0; c < clients; c++) {
+            long seed = c;
+            futures.add(executor.submit(() -> clientLoop(new SplittableRandom(seed), deadline)));
+        }
+        for (Future<Stats[]> future : futures) {
+            Stats[] clientStats = future.get();
+            if (statsOrNull == null) continue;
+            for (int i = 0; i < statsOrNull.length; i++) {
+                statsOrNull[i].merge(clientStats[i]);
+            }
+        }
+    }
+
+    // każdy klient zbiera własne pomiary, scalane dopiero na końcu, żeby pomiar nie był punktem rywalizacji
+    private Stats[] clientLoop(SplittableRandom random, long deadline) {
+        Stats[] stats = newStats();
+        while (System.nanoTime() < deadline) {
+            String screeningId = screeningIds.get(random.nextInt(screeningIds.size()));
+            int roll = random.nextInt(100);
+
+            if (roll < PROGRAMME_PERCENT) {
+                LocalDate day = LocalDate.now().plusDays(random.nextInt(7));
+                call(stats[Operation.PROGRAMME.ordinal()], HttpRequest.newBuilder(base.resolve(
+                        "/programme?from=" + day.atStartOfDay() + "&to=" + day.plusDays(1).atStartOfDay())).GET().build());
+            } else if (roll < PROGRAMME_PERCENT + SEAT_MAP_PERCENT) {
+                call(stats[Operation.SEAT_MAP.ordinal()], HttpRequest.newBuilder(base.resolve(
+                        "/screenings/" + screeningId + "/seats")).GET().build());
+            } else {
+                HttpResponse<String> reserved = call(stats[Operation.RESERVE.ordinal()], post(
+                        "/screenings/" + screeningId + "/reservations", "best=" + (1 + random.nextInt(4))));
+                boolean thenBuy = roll >= PROGRAMME_PERCENT + SEAT_MAP_PERCENT + RESERVE_PERCENT;
+                if (!thenBuy || reserved == null || reserved.statusCode() != 200) continue;
+
+                Matcher token = TOKEN.matcher(reserved.body());
+                Matcher seats = SEATS.matcher(reserved.body());
+                if (!token.find() || !seats.find()) continue;
+                call(stats[Operation.PURCHASE.ordinal()], post("/screenings/" + screeningId + "/purchases",
+                        "token=" + token.group(1) + "&seats=" + seats.group(1).replace("\"", "")));
+            }
+        }
+        return stats;
+    }
+
+    private HttpRequest post(String path, String form) {
+        return HttpRequest.newBuilder(base.resolve(path))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form))
+                .build();
+    }
+
+    private HttpResponse<String> call(Stats stats, HttpRequest request) {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = send(request);
+            stats.record(response.statusCode(), System.nanoTime() - start);
+            return response;
+        } catch (IOException ex) {
+            stats.record(-1, System.nanoTime() - start);
+            return null;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static Stats[] newStats() {
+        Stats[] stats = new Stats[Operation.values().length];
+        for (int i = 0; i < stats.length; i++) {
+            stats[i] = new Stats();
+        }
+        return stats;
+    }
+
+    private static void report(Stats[] stats, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        long total = 0;
+        System.out.printf("%-10s %9s %10s %6s %6s %6s %9s %9s %9s %9s %9s%n",
+                "request", "count", "req/s", "2xx", "409", "other", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Operation op : Operation.values()) {
+            Stats s = stats[op.ordinal()];
+            long[] sorted = Arrays.copyOf(s.latencies, s.count);
+            Arrays.sort(sorted);
+            total += s.count;
+            System.out.printf("%-10s %9d %10.0f %6d %6d %6d %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    op.name().toLowerCase(), s.count, s.count / seconds, s.ok, s.conflicts, s.count - s.ok - s.conflicts,
+                    percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99), percentile(sorted, 99.9),
+                    sorted.length == 0 ? 0.0 : sorted[sorted.length - 1] / 1e6);
+        }
+        System.out.printf("total: %d requests in %.1fs = %.0f req/s%n", total, seconds, total / seconds);
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) return 0.0;
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e6;
+    }
+
+    private static final class Stats {
+        private long[] latencies = new long[1024];
+        private int count;
+        private int ok;
+        private int conflicts;
+
+        void record(int status, long latencyNanos) {
+            if (count == latencies.length) latencies = Arrays.copyOf(latencies, count * 2);
+            latencies[count++] = latencyNanos;
+            if (status >= 200 && status < 300) ok++;
+            else if (status == 409) conflicts++;
+        }
+
+        void merge(Stats other) {
+            if (count + other.count > latencies.length) {
+                latencies = Arrays.copyOf(latencies, Math.max(latencies.length * 2, count + other.count));
+            }
+            System.arraycopy(other.latencies, 0, latencies, count, other.count);
+            count += other.count;
+            ok += other.ok;
+            conflicts += other.conflicts;
+        }
+    }
+}
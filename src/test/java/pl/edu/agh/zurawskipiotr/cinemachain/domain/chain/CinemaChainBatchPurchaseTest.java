@@ -0,0 +1,132 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.domain.chain;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.catalog.Genre;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.catalog.Movie;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.customer.Customer;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.sales.TicketOrder;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.sales.TicketPurchase;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.screening.Screening;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.screening.SeatStatus;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.Cinema;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.Hall;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.Seat;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.SeatCategory;
+import pl.edu.agh.zurawskipiotr.cinemachain.persistence.BookingJournal;
+import pl.edu.agh.zurawskipiotr.cinemachain.pricing.DefaultPricingPolicy;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CinemaChainBatchPurchaseTest {
+
+    private CinemaChain chain;
+    private Customer customer;
+    private Screening first;
+    private Screening second;
+
+    @BeforeEach
+    void setUp() {
+        chain = new CinemaChain("Sieć");
+        customer = new Customer("cust-1", "Jan", "Kowalski", "jan@example.com");
+        chain.registerCustomer(customer);
+
+        Cinema north = new Cinema("north", "Północ", "ul. Długa 1");
+        Cinema south = new Cinema("south", "Południe", "ul. Krótka 2");
+        chain.addCinema(north);
+        chain.addCinema(south);
+        first = screening(north, "scr-1");
+        second = screening(south, "scr-2");
+    }
+
+    @Test
+    void sellsEveryLineAcrossCinemas() {
+        List<TicketPurchase> purchases = chain.buyTicketsBatch(customer, List.of(
+                TicketOrder.of(first, "A1", "A2"),
+                TicketOrder.of(second, "A1")));
+
+        assertEquals(3, purchases.size());
+        assertEquals(SeatStatus.SOLD, first.getSeatStatus("A1"));
+        assertEquals(SeatStatus.SOLD, first.getSeatStatus("A2"));
+        assertEquals(SeatStatus.SOLD, second.getSeatStatus("A1"));
+        assertEquals(3, chain.getTicketsByCode().size());
+        assertEquals(3, customer.getOwnTicketCount());
+    }
+
+    @Test
+    void lineWithSoldSeatLeavesOtherLinesUnsold() {
+        chain.buyTicketsAsGuest(second, "A1");
+
+        assertThrows(IllegalStateException.class, () -> chain.buyTicketsBatch(customer, List.of(
+                TicketOrder.of(first, "A1", "A2"),
+                TicketOrder.of(second, "A2", "A1"))));
+
+        assertNothingSoldBesides(1);
+        assertEquals(SeatStatus.FREE, second.getSeatStatus("A2"));
+    }
+
+    @Test
+    void lineWithSeatHeldByAnotherCustomerLeavesOtherLinesUnsold() {
+        second.reservePlaces("A3");
+
+        assertThrows(IllegalStateException.class, () -> chain.buyTicketsBatch(customer, List.of(
+                TicketOrder.of(first, "A1"),
+                TicketOrder.of(second, "A3"))));
+
+        assertNothingSoldBesides(0);
+        assertEquals(SeatStatus.RESERVED, second.getSeatStatus("A3"));
+    }
+
+    @Test
+    void unknownOrDuplicatedSeatIsRejectedBeforeAnySale() {
+        assertThrows(IllegalArgumentException.class, () -> chain.buyTicketsBatch(customer, List.of(
+                TicketOrder.of(first, "A1"),
+                TicketOrder.of(second, "Z99"))));
+        assertThrows(IllegalArgumentException.class, () -> chain.buyTicketsBatch(customer, List.of(
+                TicketOrder.of(first, "A1"),
+                TicketOrder.of(first, "A1"))));
+
+        assertNothingSoldBesides(0);
+    }
+
+    @Test
+    void failedJournalWriteLeavesNoSeatSold(@TempDir Path dir) throws Exception {
+        BookingJournal journal = BookingJournal.recover(dir.resolve("bookings.log"), chain);
+        journal.close();
+
+        assertThrows(IllegalStateException.class, () -> chain.buyTicketsBatch(customer, List.of(
+                TicketOrder.of(first, "A1"),
+                TicketOrder.of(second, "A1"))));
+
+        assertNothingSoldBesides(0);
+    }
+
+    private void assertNothingSoldBesides(int soldBefore) {
+        assertEquals(SeatStatus.FREE, first.getSeatStatus("A1"));
+        assertEquals(SeatStatus.FREE, first.getSeatStatus("A2"));
+        assertEquals(soldBefore, chain.getTicketsByCode().size());
+        assertEquals(soldBefore, first.occupancy().soldSeats() + second.occupancy().soldSeats());
+        assertTrue(customer.getOwnTickets().isEmpty());
+    }
+
+    private static Screening screening(Cinema cinema, String id) {
+        Hall hall = new Hall("Sala " + id);
+        for (int number = 1; number <= 5; number++) {
+            hall.addSeat(new Seat("A", number, SeatCategory.STANDARD));
+        }
+        cinema.addHall(hall);
+
+        Screening screening = new Screening(id, new Movie("Film", 120, List.of(Genre.DRAMA), 0), hall, false, false,
+                LocalDateTime.now().plusDays(1), Duration.ofMinutes(15), DefaultPricingPolicy.defaultPolicy());
+        cinema.addScreening(screening);
+        return screening;
+    }
+}
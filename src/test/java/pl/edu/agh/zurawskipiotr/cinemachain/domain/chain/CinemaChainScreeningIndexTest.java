@@ -0,0 +1,83 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.domain.chain;
+
+import org.junit.jupiter.api.Test;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.catalog.Genre;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.catalog.Movie;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.screening.Screening;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.Cinema;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.Hall;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.Seat;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.SeatCategory;
+import pl.edu.agh.zurawskipiotr.cinemachain.pricing.DefaultPricingPolicy;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CinemaChainScreeningIndexTest {
+
+    @Test
+    void followsScreeningsAndCinemasAddedAndRemoved() {
+        CinemaChain chain = new CinemaChain("Sieć");
+        Cinema cinema = new Cinema("north", "Północ", "ul. Długa 1");
+        Hall hall = hall(cinema);
+        // seans dodany przed dołączeniem kina do sieci trafia do indeksu razem z kinem
+        Screening early = screening("scr-1", hall);
+        cinema.addScreening(early);
+        chain.addCinema(cinema);
+        Screening late = screening("scr-2", hall);
+        cinema.addScreening(late);
+
+        assertSame(early, chain.findScreeningById("scr-1"));
+        assertSame(late, chain.findScreeningById("scr-2"));
+
+        cinema.removeScreening(late);
+        assertNull(chain.findScreeningById("scr-2"));
+
+        chain.removeCinema(cinema);
+        assertNull(chain.findScreeningById("scr-1"));
+    }
+
+    @Test
+    void rejectsScreeningIdUsedByAnotherCinema() {
+        CinemaChain chain = new CinemaChain("Sieć");
+        Cinema north = new Cinema("north", "Północ", "ul. Długa 1");
+        Cinema south = new Cinema("south", "Południe", "ul. Krótka 2");
+        chain.addCinema(north);
+        Screening taken = screening("scr-1", hall(north));
+        north.addScreening(taken);
+
+        Hall southHall = hall(south);
+        chain.addCinema(south);
+        assertThrows(IllegalStateException.class, () -> south.addScreening(screening("scr-1", southHall)));
+        assertTrue(south.getScreenings().isEmpty());
+
+        // kino z takim seansem nie dołącza do sieci i nic w niej nie zmienia
+        Cinema west = new Cinema("west", "Zachód", "ul. Szeroka 3");
+        Hall westHall = hall(west);
+        west.addScreening(screening("scr-2", westHall));
+        west.addScreening(screening("scr-1", westHall));
+        assertThrows(IllegalStateException.class, () -> chain.addCinema(west));
+        assertNull(chain.findScreeningById("scr-2"));
+        assertSame(taken, chain.findScreeningById("scr-1"));
+        assertEquals(2, chain.getCinemas().size());
+    }
+
+    private static Hall hall(Cinema cinema) {
+        Hall hall = new Hall("Sala 1");
+        hall.addSeat(new Seat("A", 1, SeatCategory.STANDARD));
+        cinema.addHall(hall);
+        return hall;
+    }
+
+    private static Screening screening(String id, Hall hall) {
+        return new Screening(id, new Movie("Film", 120, List.of(Genre.DRAMA), 0), hall, false, false,
+                LocalDateTime.now().plusDays(1), Duration.ofMinutes(15), DefaultPricingPolicy.defaultPolicy());
+    }
+}
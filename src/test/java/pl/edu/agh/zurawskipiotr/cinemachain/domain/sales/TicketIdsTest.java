@@ -0,0 +1,96 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.domain.sales;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TicketIdsTest {
+
+    private static final String ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ";
+
+    @Test
+    void checkCharacterIsLuhnModThirtyTwo() {
+        // 1 podwojone daje 2, więc znak kontrolny to 32 - 2 = 30 ('Y')
+        assertEquals("1Y", TicketIds.format(1));
+        // 31 podwojone daje 62 = 1·32 + 30, suma cyfr 31, znak kontrolny 1
+        assertEquals("Z1", TicketIds.format(31));
+        assertEquals(1, TicketIds.parse("1Y"));
+        assertEquals(31, TicketIds.parse("Z1"));
+    }
+
+    @Test
+    void formatAndParseRoundTrip() {
+        SplittableRandom random = new SplittableRandom(42);
+        List<Long> ids = new ArrayList<>(List.of(1L, 31L, 32L, TicketIds.compose(1, 0),
+                TicketIds.compose(Integer.MAX_VALUE, TicketIds.MAX_SEQUENCE)));
+        for (int i = 0; i < 1_000; i++) {
+            ids.add(random.nextLong(1, Long.MAX_VALUE));
+        }
+        for (long id : ids) {
+            String code = TicketIds.format(id);
+            assertTrue(code.length() <= 14, code);
+            assertEquals(id, TicketIds.parse(code), code);
+        }
+        assertEquals(Long.MAX_VALUE, TicketIds.compose(Integer.MAX_VALUE, TicketIds.MAX_SEQUENCE));
+    }
+
+    @Test
+    void everySingleCharacterTypoIsRejected() {
+        SplittableRandom random = new SplittableRandom(7);
+        for (int n = 0; n < 50; n++) {
+            String code = TicketIds.format(random.nextLong(1, Long.MAX_VALUE));
+            for (int position = 0; position < code.length(); position++) {
+                for (char typo : ALPHABET.toCharArray()) {
+                    if (typo == code.charAt(position)) continue;
+                    String mistyped = code.substring(0, position) + typo + code.substring(position + 1);
+                    assertThrows(IllegalArgumentException.class, () -> TicketIds.parse(mistyped), mistyped);
+                }
+            }
+        }
+    }
+
+    @Test
+    void parseAcceptsLowerCaseSeparatorsAndConfusableCharacters() {
+        long id = TicketIds.compose(0b10000, 0b1_00001);
+        String code = TicketIds.format(id);
+        assertTrue(code.contains("0") && code.contains("1"), code);
+
+        String typed = " " + code.toLowerCase().replace('0', 'O').replaceFirst("1", "I").replace('1', 'l') + " ";
+        assertEquals(id, TicketIds.parse(typed));
+        assertEquals(id, TicketIds.parse(code.substring(0, 4) + "-" + code.substring(4)));
+    }
+
+    @Test
+    void malformedCodesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> TicketIds.parse(null));
+        assertThrows(IllegalArgumentException.class, () -> TicketIds.parse(""));
+        assertThrows(IllegalArgumentException.class, () -> TicketIds.parse("1"));
+        assertThrows(IllegalArgumentException.class, () -> TicketIds.parse("1U"));
+        assertThrows(IllegalArgumentException.class, () -> TicketIds.parse("123456789ABCDEF"));
+        // 13 cyfr danych przekracza 64 bity, gdy najstarsza cyfra ma ustawiony piąty bit
+        assertThrows(IllegalArgumentException.class, () -> TicketIds.parse("G0000000000000"));
+        assertThrows(IllegalArgumentException.class, () -> TicketIds.format(0));
+    }
+
+    @Test
+    void restoredTicketReservesItsPrefixAndSequence() {
+        int restoredPrefix = TicketIds.allocatePrefix() + 1_000;
+        long restored = TicketIds.compose(restoredPrefix, 5);
+
+        TicketIdGenerator sameScreening = new TicketIdGenerator();
+        sameScreening.observe(restored);
+        sameScreening.observe(TicketIds.compose(restoredPrefix, 2));
+        assertEquals(TicketIds.compose(restoredPrefix, 6), sameScreening.next());
+
+        // nowy seans po odtworzeniu nie dostaje prefiksu żadnego odtworzonego biletu
+        long fresh = new TicketIdGenerator().next();
+        assertTrue(TicketIds.prefixOf(fresh) > restoredPrefix);
+        assertEquals(0, TicketIds.sequenceOf(fresh));
+    }
+}
@@ -0,0 +1,86 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.domain.screening;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReservationExpirySchedulerTest {
+
+    private static final long WAIT_MILLIS = 5_000;
+
+    private ReservationExpiryScheduler scheduler;
+
+    @AfterEach
+    void tearDown() {
+        if (scheduler != null) scheduler.shutdown();
+    }
+
+    @Test
+    void reservationIsFreedAfterItsTtl() throws InterruptedException {
+        scheduler = new ReservationExpiryScheduler(Duration.ofMillis(10), 8);
+        SeatingPlan plan = plan(Duration.ofMillis(50));
+
+        plan.reserve("C:jan", "A1", "A2");
+        assertEquals(SeatStatus.RESERVED, plan.getSeatStatus("A1"));
+
+        awaitStatus(plan, "A1", SeatStatus.FREE);
+        awaitStatus(plan, "A2", SeatStatus.FREE);
+        assertEquals(List.of(), plan.getReservedSeats("C:jan"));
+        assertEquals(0, plan.occupancy().reservedSeats());
+    }
+
+    @Test
+    void ttlLongerThanOneTurnOfTheWheelWaitsForItsRounds() throws InterruptedException {
+        // koło obejmuje 4 × 5 ms, więc termin 300 ms leży wiele obrotów dalej
+        scheduler = new ReservationExpiryScheduler(Duration.ofMillis(5), 4);
+        SeatingPlan plan = plan(Duration.ofMillis(300));
+
+        long reservedAt = System.nanoTime();
+        plan.reserve("C:jan", "A1");
+        Thread.sleep(100);
+        assertEquals(SeatStatus.RESERVED, plan.getSeatStatus("A1"));
+
+        awaitStatus(plan, "A1", SeatStatus.FREE);
+        assertTrue(System.nanoTime() - reservedAt >= Duration.ofMillis(300).toNanos());
+    }
+
+    @Test
+    void soldSeatIsNotFreedWhenItsHoldComesDue() throws InterruptedException {
+        scheduler = new ReservationExpiryScheduler(Duration.ofMillis(10), 8);
+        SeatingPlan plan = plan(Duration.ofMillis(50));
+
+        plan.reserve("C:jan", "A1", "A2");
+        plan.sell("C:jan", null, false, "A1");
+
+        awaitStatus(plan, "A2", SeatStatus.FREE);
+        assertEquals(SeatStatus.SOLD, plan.getSeatStatus("A1"));
+    }
+
+    @Test
+    void ownSchedulerRejectsHoldsAfterShutdown() {
+        scheduler = new ReservationExpiryScheduler(Duration.ofMillis(10), 8);
+        SeatingPlan plan = plan(Duration.ofMillis(50));
+        scheduler.shutdown();
+
+        assertThrows(IllegalStateException.class, () -> plan.reserve("C:jan", "A1"));
+        assertThrows(IllegalStateException.class, () -> ReservationExpiryScheduler.shared().shutdown());
+    }
+
+    private SeatingPlan plan(Duration ttl) {
+        return new SeatingPlan(new SeatCodeIndex(List.of("A1", "A2", "A3")), ttl, () -> scheduler);
+    }
+
+    private static void awaitStatus(SeatingPlan plan, String seatCode, SeatStatus expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (plan.getSeatStatus(seatCode) != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, plan.getSeatStatus(seatCode), seatCode);
+    }
+}
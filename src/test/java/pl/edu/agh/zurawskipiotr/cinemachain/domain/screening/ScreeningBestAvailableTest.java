@@ -0,0 +1,86 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.domain.screening;
+
+import org.junit.jupiter.api.Test;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.catalog.Genre;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.catalog.Movie;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.customer.Customer;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.Hall;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.Seat;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.SeatCategory;
+import pl.edu.agh.zurawskipiotr.cinemachain.pricing.DefaultPricingPolicy;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScreeningBestAvailableTest {
+
+    private final Customer customer = new Customer("cust-1", "Jan", "Kowalski", "jan@example.com");
+
+    @Test
+    void reservesAdjacentSeatsInOneRow() {
+        Screening screening = screening(hall(10, SeatCategory.STANDARD, SeatCategory.STANDARD));
+
+        List<String> seats = screening.reserveBestAvailable(customer, 4, null);
+
+        assertEquals(4, seats.size());
+        char row = seats.get(0).charAt(0);
+        int first = Integer.parseInt(seats.get(0).substring(1));
+        for (int i = 0; i < seats.size(); i++) {
+            assertEquals(row + String.valueOf(first + i), seats.get(i));
+            assertEquals(SeatStatus.RESERVED, screening.getSeatStatus(seats.get(i)));
+        }
+        assertEquals(seats, screening.getReservedSeatsFor(customer));
+    }
+
+    @Test
+    void failsWhenNoRunIsFreeNow() {
+        Screening screening = screening(hall(5, SeatCategory.STANDARD));
+        screening.reservePlaces("A3");
+
+        // wolne A1-A2 i A4-A5: żaden ciąg trzech miejsc
+        assertThrows(IllegalStateException.class, () -> screening.reserveBestAvailable(customer, 3, null));
+        assertTrue(screening.getReservedSeatsFor(customer).isEmpty());
+
+        assertEquals(2, screening.reserveBestAvailable(customer, 2, null).size());
+    }
+
+    @Test
+    void rejectsPartyLongerThanAnyRow() {
+        Screening screening = screening(hall(5, SeatCategory.STANDARD, SeatCategory.STANDARD));
+
+        assertThrows(IllegalArgumentException.class, () -> screening.reserveBestAvailable(customer, 6, null));
+        assertThrows(IllegalArgumentException.class, () -> screening.reserveBestAvailable(customer, 0, null));
+        assertEquals(10, screening.occupancy().freeSeats());
+    }
+
+    @Test
+    void keepsToRequestedCategory() {
+        Screening screening = screening(hall(6, SeatCategory.STANDARD, SeatCategory.VIP));
+
+        List<String> seats = screening.reserveBestAvailable(customer, 3, SeatCategory.VIP);
+
+        assertEquals(3, seats.size());
+        seats.forEach(code -> assertTrue(code.startsWith("B"), code));
+    }
+
+    // rzędy A, B, ... po seatsPerRow miejsc, każdy w swojej kategorii
+    static Hall hall(int seatsPerRow, SeatCategory... rowCategories) {
+        Hall hall = new Hall("Sala 1");
+        for (int row = 0; row < rowCategories.length; row++) {
+            for (int number = 1; number <= seatsPerRow; number++) {
+                hall.addSeat(new Seat(String.valueOf((char) ('A' + row)), number, rowCategories[row]));
+            }
+        }
+        return hall;
+    }
+
+    static Screening screening(Hall hall) {
+        return new Screening("scr-1", new Movie("Film", 120, List.of(Genre.DRAMA), 0), hall, false, false,
+                LocalDateTime.now().plusDays(1), Duration.ofMinutes(15), DefaultPricingPolicy.defaultPolicy());
+    }
+}
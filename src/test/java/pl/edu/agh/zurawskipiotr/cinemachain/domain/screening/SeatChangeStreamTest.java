@@ -0,0 +1,111 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.domain.screening;
+
+import org.junit.jupiter.api.Test;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.customer.Customer;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.SeatCategory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static pl.edu.agh.zurawskipiotr.cinemachain.domain.screening.ScreeningBestAvailableTest.hall;
+import static pl.edu.agh.zurawskipiotr.cinemachain.domain.screening.ScreeningBestAvailableTest.screening;
+
+class SeatChangeStreamTest {
+
+    private final Customer customer = new Customer("cust-1", "Jan", "Kowalski", "jan@example.com");
+
+    @Test
+    void slowSubscriberGetsLastStatePerSeat() throws InterruptedException {
+        Screening screening = screening(hall(5, SeatCategory.STANDARD));
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        screening.seatChanges().subscribe(subscriber);
+
+        // bez zapotrzebowania zmiany czekają w buforze subskrybenta
+        screening.reservePlaces("A2");
+        String token = screening.reservePlaces("A1");
+        screening.releasePlacesForToken(token, "A1");
+        screening.reservePlaces(customer, "A1");
+        screening.buyTicketsForCustomer(customer, "A1");
+
+        subscriber.subscription.request(1);
+        SeatChange a2 = subscriber.next();
+        assertEquals("A2", a2.seatCode());
+        assertEquals(SeatStatus.RESERVED, a2.status());
+        assertNull(subscriber.changes.poll(100, TimeUnit.MILLISECONDS));
+
+        // A1 zmieniało się cztery razy i po każdej zmianie trafiało na koniec kolejki; zostaje tylko ostatni stan
+        subscriber.subscription.request(Long.MAX_VALUE);
+        SeatChange a1 = subscriber.next();
+        assertEquals("A1", a1.seatCode());
+        assertEquals(SeatStatus.SOLD, a1.status());
+        assertEquals(SeatChange.Reason.SOLD, a1.reason());
+        assertTrue(a1.sequence() > a2.sequence() + 1);
+        assertEquals(screening.seatStatusSnapshot().sequence(), a1.sequence());
+        assertNull(subscriber.changes.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void changesAfterSnapshotRebuildCurrentState() throws InterruptedException {
+        Screening screening = screening(hall(5, SeatCategory.STANDARD, SeatCategory.STANDARD));
+        screening.reservePlaces("A5");
+
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        screening.seatChanges().subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        SeatStatusSnapshot before = screening.seatStatusSnapshot();
+
+        screening.reserveBestAvailable(customer, 3, null);
+        screening.buyTicketsAsGuest("A2", "A3");
+        String token = screening.reservePlaces("A1");
+        screening.releasePlacesForToken(token, "A1");
+
+        SeatStatusSnapshot after = screening.seatStatusSnapshot();
+        Map<String, SeatStatus> rebuilt = new HashMap<>(before.seats());
+        long sequence = before.sequence();
+        while (sequence < after.sequence()) {
+            SeatChange change = subscriber.next();
+            assertTrue(change.sequence() > sequence);
+            sequence = change.sequence();
+            rebuilt.put(change.seatCode(), change.status());
+        }
+        assertEquals(after.seats(), rebuilt);
+    }
+
+    private static final class RecordingSubscriber implements Flow.Subscriber<SeatChange> {
+
+        private final BlockingQueue<SeatChange> changes = new LinkedBlockingQueue<>();
+        private volatile Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(SeatChange change) {
+            changes.add(change);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+        }
+
+        @Override
+        public void onComplete() {
+        }
+
+        SeatChange next() throws InterruptedException {
+            SeatChange change = changes.poll(5, TimeUnit.SECONDS);
+            assertNotNull(change, "no seat change delivered");
+            return change;
+        }
+    }
+}
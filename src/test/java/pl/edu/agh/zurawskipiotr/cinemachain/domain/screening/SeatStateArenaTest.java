@@ -0,0 +1,57 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.domain.screening;
+
+import org.junit.jupiter.api.Test;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.catalog.Genre;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.catalog.Movie;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.chain.CinemaChain;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.Cinema;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.Hall;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.SeatCategory;
+import pl.edu.agh.zurawskipiotr.cinemachain.pricing.DefaultPricingPolicy;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SeatStateArenaTest {
+
+    @Test
+    void removedScreeningReturnsItsSlotsForReuse() {
+        // segment mieści dokładnie jedną salę: bez ponownego użycia drugi seans potrzebowałby nowego segmentu
+        try (SeatStateArena arena = new SeatStateArena(5 * SeatStateArena.SLOT_BYTES)) {
+            CinemaChain chain = new CinemaChain("Sieć");
+            chain.attachSeatStateArena(arena);
+            Cinema cinema = new Cinema("north", "Północ", "ul. Długa 1");
+            chain.addCinema(cinema);
+            Hall hall = ScreeningBestAvailableTest.hall(5, SeatCategory.STANDARD);
+            cinema.addHall(hall);
+
+            Screening removed = screening("scr-1", hall);
+            cinema.addScreening(removed);
+            removed.reservePlaces("A1");
+            long reserved = arena.reservedBytes();
+            assertEquals(5 * SeatStateArena.SLOT_BYTES, arena.allocatedBytes());
+
+            cinema.removeScreening(removed);
+            assertEquals(0, arena.allocatedBytes());
+            // usunięty seans zachowuje swój stan, już na stercie
+            assertEquals(SeatStatus.RESERVED, removed.getSeatStatus("A1"));
+
+            Screening next = screening("scr-2", hall);
+            cinema.addScreening(next);
+            next.reservePlaces("A2");
+            assertEquals(reserved, arena.reservedBytes());
+            assertEquals(5 * SeatStateArena.SLOT_BYTES, arena.allocatedBytes());
+            assertEquals(SeatStatus.FREE, next.getSeatStatus("A1"));
+            assertEquals(SeatStatus.RESERVED, next.getSeatStatus("A2"));
+            assertEquals(SeatStatus.RESERVED, removed.getSeatStatus("A1"));
+        }
+    }
+
+    private static Screening screening(String id, Hall hall) {
+        return new Screening(id, new Movie("Film", 120, List.of(Genre.DRAMA), 0), hall, false, false,
+                LocalDateTime.now().plusDays(1), Duration.ofMinutes(15), DefaultPricingPolicy.defaultPolicy());
+    }
+}
@@ -0,0 +1,147 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.domain.screening;
+
+import org.junit.jupiter.api.Test;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.chain.CinemaChain;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.sales.TicketPurchase;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.Cinema;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.Hall;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.Seat;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.SeatCategory;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SeatingPlanConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int ATTEMPTS_PER_THREAD = 200;
+
+    @Test
+    void overlappingReservationsAreAllOrNothing() throws Exception {
+        Screening screening = ScreeningBestAvailableTest.screening(
+                ScreeningBestAvailableTest.hall(10, SeatCategory.STANDARD, SeatCategory.STANDARD));
+        List<String> codes = screening.getHall().getSeats().stream().map(Seat::getCode).toList();
+
+        List<Held> held = race(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            String[] wanted = {
+                    codes.get(random.nextInt(codes.size())),
+                    codes.get(random.nextInt(codes.size())),
+                    codes.get(random.nextInt(codes.size()))};
+            if (new HashSet<>(List.of(wanted)).size() < wanted.length) return null;
+            try {
+                return new Held(screening.reservePlaces(wanted), Set.of(wanted));
+            } catch (IllegalStateException conflict) {
+                return null;
+            }
+        });
+
+        // każda udana rezerwacja trzyma dokładnie swoje miejsca, nieudane nie zostawiły żadnego
+        int reservedSeats = 0;
+        for (Held h : held) {
+            assertEquals(h.seats(), Set.copyOf(screening.getReservedSeatsForToken(h.token())));
+            reservedSeats += h.seats().size();
+        }
+        long reservedInPlan = screening.seatStatusSnapshot().seats().values().stream()
+                .filter(status -> status == SeatStatus.RESERVED)
+                .count();
+        assertEquals(reservedSeats, reservedInPlan);
+    }
+
+    @Test
+    void concurrentBuyersNeverSellASeatTwice() throws Exception {
+        CinemaChain chain = new CinemaChain("Sieć");
+        Cinema cinema = new Cinema("north", "Północ", "ul. Długa 1");
+        chain.addCinema(cinema);
+        Hall hall = ScreeningBestAvailableTest.hall(10, SeatCategory.STANDARD, SeatCategory.VIP);
+        cinema.addHall(hall);
+        Screening screening = ScreeningBestAvailableTest.screening(hall);
+        cinema.addScreening(screening);
+        List<String> codes = hall.getSeats().stream().map(Seat::getCode).toList();
+
+        List<List<TicketPurchase>> bought = race(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int first = random.nextInt(codes.size() - 1);
+            try {
+                return chain.buyTicketsAsGuest(screening, codes.get(first), codes.get(first + 1));
+            } catch (IllegalStateException conflict) {
+                return null;
+            }
+        });
+
+        Set<String> soldByPurchases = new HashSet<>();
+        for (List<TicketPurchase> purchase : bought) {
+            assertEquals(2, purchase.size());
+            for (TicketPurchase line : purchase) {
+                assertTrue(soldByPurchases.add(line.ticket().getSeat().getCode()), "sold twice");
+            }
+        }
+        Map<String, SeatStatus> seats = screening.seatStatusSnapshot().seats();
+        for (String code : codes) {
+            assertEquals(soldByPurchases.contains(code), seats.get(code) == SeatStatus.SOLD, code);
+        }
+        assertEquals(soldByPurchases.size(), chain.getTicketsByCode().size());
+        assertEquals(soldByPurchases.size(), screening.occupancy().soldSeats());
+    }
+
+    @Test
+    void seatStatusIsALiveReadOnlyView() {
+        Screening screening = ScreeningBestAvailableTest.screening(
+                ScreeningBestAvailableTest.hall(3, SeatCategory.STANDARD));
+        Map<String, SeatStatus> view = screening.seatStatus();
+        assertEquals(List.of("A1", "A2", "A3"), List.copyOf(view.keySet()));
+        assertEquals(SeatStatus.FREE, view.get("A2"));
+
+        screening.reservePlaces("A2");
+
+        assertSame(view, screening.seatStatus());
+        assertEquals(SeatStatus.RESERVED, view.get("A2"));
+        assertEquals(3, view.size());
+        assertThrows(UnsupportedOperationException.class, () -> view.put("A1", SeatStatus.SOLD));
+    }
+
+    private record Held(String token, Set<String> seats) {
+    }
+
+    // THREADS wątków startuje naraz i każdy próbuje ATTEMPTS_PER_THREAD razy; zbiera wyniki udanych prób
+    private static <T> List<T> race(Callable<T> attempt) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<List<T>>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    List<T> results = new ArrayList<>();
+                    for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                        T result = attempt.call();
+                        if (result != null) results.add(result);
+                    }
+                    return results;
+                }));
+            }
+            start.countDown();
+            List<T> all = new ArrayList<>();
+            for (Future<List<T>> future : futures) {
+                all.addAll(future.get());
+            }
+            return all;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.catalog.Genre;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.catalog.Movie;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.chain.CinemaChain;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.customer.Customer;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.sales.Ticket;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.screening.Screening;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.screening.SeatStatus;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.Cinema;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.Hall;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.Seat;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.SeatCategory;
+import pl.edu.agh.zurawskipiotr.cinemachain.pricing.DefaultPricingPolicy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BookingJournalTest {
+
+    private static final LocalDateTime START = LocalDateTime.now().plusDays(1).withNano(0);
+
+    @Test
+    void replayRestoresReservationsAndPurchases(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("bookings.log");
+        Set<String> codes = writeBookings(file);
+
+        Chain restored = new Chain();
+        BookingJournal.recover(file, restored.chain).close();
+
+        assertRestored(restored, codes);
+    }
+
+    @Test
+    void tornTailIsDroppedAndTruncatedBeforeNewAppends(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("bookings.log");
+        Set<String> codes = writeBookings(file);
+        long validLength = Files.size(file);
+
+        // rekord przerwany w połowie zapisu: pełny nagłówek, ale tylko część treści
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.allocate(BookingJournal.HEADER_SIZE + 3).putInt(64).putInt(0x1234).put(new byte[3]).flip());
+        }
+
+        Chain restored = new Chain();
+        BookingJournal journal = BookingJournal.recover(file, restored.chain);
+        assertEquals(validLength, Files.size(file));
+        assertRestored(restored, codes);
+
+        // nowy rekord trafia za ostatni poprawny, więc kolejne odtworzenie go widzi
+        restored.screening.reservePlaces(restored.customer, "A5");
+        journal.close();
+
+        Chain again = new Chain();
+        BookingJournal.recover(file, again.chain).close();
+        assertRestored(again, codes);
+        assertEquals(List.of("A5"), again.screening.getReservedSeatsFor(again.customer));
+    }
+
+    // klient kupuje wcześniej zarezerwowane A1, gość kupuje A2 i A3, drugi klient trzyma A4; zwraca kody biletów
+    private static Set<String> writeBookings(Path file) throws IOException {
+        Chain original = new Chain();
+        try (BookingJournal ignored = BookingJournal.recover(file, original.chain)) {
+            original.screening.reservePlaces(original.customer, "A1");
+            original.chain.buyTickets(original.screening, original.customer, "A1");
+            original.chain.buyTicketsAsGuest(original.screening, "A2", "A3");
+            original.screening.reservePlaces(original.other, "A4");
+        }
+        return Set.copyOf(original.chain.getTicketsByCode().keySet());
+    }
+
+    private static void assertRestored(Chain restored, Set<String> ticketCodes) {
+        Screening screening = restored.screening;
+        assertEquals(SeatStatus.SOLD, screening.getSeatStatus("A1"));
+        assertEquals(SeatStatus.SOLD, screening.getSeatStatus("A2"));
+        assertEquals(SeatStatus.SOLD, screening.getSeatStatus("A3"));
+        assertEquals(SeatStatus.RESERVED, screening.getSeatStatus("A4"));
+        assertEquals(List.of("A4"), screening.getReservedSeatsFor(restored.other));
+        assertEquals(ticketCodes, restored.chain.getTicketsByCode().keySet());
+        for (Ticket ticket : restored.chain.getTicketsByCode().values()) {
+            Customer expectedOwner = ticket.getSeat().getCode().equals("A1") ? restored.customer : null;
+            assertEquals(expectedOwner, ticket.getOwner(), ticket.getSeat().getCode());
+        }
+    }
+
+    // sieć o tych samych id przed restartem i po nim
+    private static final class Chain {
+        final CinemaChain chain = new CinemaChain("chain-1", "Sieć");
+        final Customer customer = new Customer("cust-1", "Jan", "Kowalski", "jan@example.com");
+        final Customer other = new Customer("cust-2", "Anna", "Nowak", "anna@example.com");
+        final Screening screening;
+
+        Chain() {
+            chain.registerCustomer(customer);
+            chain.registerCustomer(other);
+            Cinema cinema = new Cinema("north", "Północ", "ul. Długa 1");
+            chain.addCinema(cinema);
+            Hall hall = new Hall("Sala 1");
+            for (int number = 1; number <= 6; number++) {
+                hall.addSeat(new Seat("A", number, SeatCategory.STANDARD));
+            }
+            cinema.addHall(hall);
+            screening = new Screening("scr-1", new Movie("Film", 120, List.of(Genre.DRAMA), 0), hall, false, false,
+                    START, Duration.ofMinutes(15), DefaultPricingPolicy.defaultPolicy());
+            cinema.addScreening(screening);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package pl.edu.agh.zurawskipiotr.cinemachain.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.catalog.Genre;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.catalog.Movie;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.chain.CinemaChain;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.customer.Customer;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.sales.Ticket;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.screening.Screening;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.Cinema;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.Hall;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.Seat;
+import pl.edu.agh.zurawskipiotr.cinemachain.domain.venue.SeatCategory;
+import pl.edu.agh.zurawskipiotr.cinemachain.pricing.DefaultPricingPolicy;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ChainSnapshotTest {
+
+    @Test
+    void readRestoresWhatWasWritten(@TempDir Path dir) throws IOException {
+        CinemaChain original = chain();
+        Path file = dir.resolve("chain.snap");
+
+        ChainSnapshot.write(original, file);
+        CinemaChain restored = ChainSnapshot.read(file);
+
+        assertNotSame(original, restored);
+        assertEquals(original.getId(), restored.getId());
+        assertEquals(original.getChainName(), restored.getChainName());
+        assertEquals(original.getMovies(), restored.getMovies());
+        assertEquals(original.getCustomers().keySet(), restored.getCustomers().keySet());
+        assertEquals(original.getCinemas().keySet(), restored.getCinemas().keySet());
+
+        for (Cinema cinema : original.getCinemas().values()) {
+            for (Screening screening : cinema.getScreenings()) {
+                Screening copy = restored.findScreeningById(screening.getId());
+                assertEquals(screening.getMovie(), copy.getMovie());
+                assertEquals(screening.getHall().getName(), copy.getHall().getName());
+                assertEquals(screening.getStartTime(), copy.getStartTime());
+                assertEquals(screening.getReservationTtl(), copy.getReservationTtl());
+                assertEquals(screening.isVip(), copy.isVip());
+                assertEquals(screening.isThreeD(), copy.isThreeD());
+                assertEquals(Map.copyOf(screening.seatStatus()), Map.copyOf(copy.seatStatus()));
+                assertEquals(screening.seatHolds(), copy.seatHolds());
+                assertEquals(ownersByCode(screening), ownersByCode(copy));
+            }
+        }
+        assertEquals(original.getTicketsByCode().keySet(), restored.getTicketsByCode().keySet());
+
+        // wspólne obiekty są odtwarzane raz
+        Cinema north = restored.getCinemas().get("north");
+        assertSame(north.getScreenings().get(0).getHall(), north.getScreenings().get(1).getHall());
+        assertSame(north.getScreenings().get(0).getMovie(), restored.getCinemas().get("south").getScreenings().get(0).getMovie());
+    }
+
+    @Test
+    void snapshotIsVersionOneAndOtherVersionsAreRejected(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("chain.snap");
+        ChainSnapshot.write(chain(), file);
+
+        byte[] bytes = Files.readAllBytes(file);
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            assertEquals(0x43434E53, in.readInt());
+            assertEquals(1, in.readShort());
+        }
+
+        bytes[Integer.BYTES + 1] = 2;
+        Files.write(file, bytes);
+        assertThrows(IOException.class, () -> ChainSnapshot.read(file));
+    }
+
+    // dwa kina, dwa seanse na jednej sali, rezerwacje klienta i gościa, zakupy i miejsce sprzedane bez biletu
+    private static CinemaChain chain() {
+        CinemaChain chain = new CinemaChain("chain-1", "Sieć");
+        Movie movie = new Movie("Film", 120, List.of(Genre.DRAMA), 12);
+        chain.addMovie(movie);
+        Customer jan = new Customer("cust-1", "Jan", "Kowalski", "jan@example.com");
+        Customer anna = new Customer("cust-2", "Anna", "Nowak", "anna@example.com");
+        chain.registerCustomer(jan);
+        chain.registerCustomer(anna);
+
+        Cinema north = new Cinema("north", "Północ", "ul. Długa 1");
+        Cinema south = new Cinema("south", "Południe", "ul. Krótka 2");
+        chain.addCinema(north);
+        chain.addCinema(south);
+        Hall big = hall(north, "Sala 1");
+        Hall small = hall(south, "Sala 2");
+        LocalDateTime start = LocalDateTime.now().plusDays(1).withNano(123_000_000);
+
+        Screening evening = screening(north, "scr-1", movie, big, false, start);
+        Screening late = screening(north, "scr-2", movie, big, true, start.plusHours(3));
+        Screening southern = screening(south, "scr-3", movie, small, false, start);
+
+        evening.reservePlaces(jan, "A1", "A2");
+        evening.reservePlaces("B1");
+        chain.buyTickets(evening, jan, "A1");
+        chain.buyTicketsAsGuest(evening, "A3", "B2");
+        late.reservePlaces(anna, "B3");
+        chain.buyTickets(late, anna, "A1", "A2");
+        southern.restoreSoldSeats("A1");
+        return chain;
+    }
+
+    private static Hall hall(Cinema cinema, String name) {
+        Hall hall = new Hall(name);
+        for (int number = 1; number <= 3; number++) {
+            hall.addSeat(new Seat("A", number, SeatCategory.STANDARD));
+            hall.addSeat(new Seat("B", number, SeatCategory.VIP));
+        }
+        cinema.addHall(hall);
+        return hall;
+    }
+
+    private static Screening screening(Cinema cinema, String id, Movie movie, Hall hall, boolean threeD, LocalDateTime start) {
+        Screening screening = new Screening(id, movie, hall, false, threeD, start, Duration.ofMinutes(15),
+                DefaultPricingPolicy.defaultPolicy());
+        cinema.addScreening(screening);
+        return screening;
+    }
+
+    private static Map<String, String> ownersByCode(Screening screening) {
+        Map<String, String> owners = new HashMap<>();
+        for (Ticket ticket : screening.getSoldTickets()) {
+            owners.put(ticket.getCode(), (ticket.getOwner() == null) ? "-" : ticket.getOwner().getId());
+        }
+        return owners;
+    }
+}